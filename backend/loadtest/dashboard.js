@@ -0,0 +1,56 @@
+// Dashboard load test: 200 concurrent users polling the Mongo-bound read endpoints.
+//
+// Compare platform and virtual threads by running the backend twice on Java 21+, with the
+// /records rate limit off (it would answer most requests with 429 and the run would measure
+// the limiter) and the read caches disabled (so every request reaches MongoDB):
+//   NO_LIMIT_NO_CACHE="--app.rate-limit.enabled=false \
+//     --app.cache.vehicle-records.spec=maximumWeight=0 \
+//     --app.cache.monthly-aggregation.spec=maximumSize=0 \
+//     --app.cache.regression-results.spec=maximumSize=0 \
+//     --app.cache.ser-equations.spec=maximumSize=0 \
+//     --app.cache.facets.spec=maximumSize=0"
+//   java -jar target/backend-*.jar $NO_LIMIT_NO_CACHE                                      (platform threads)
+//   java -jar target/backend-*.jar $NO_LIMIT_NO_CACHE --spring.threads.virtual.enabled=true (virtual threads)
+// and running against each:
+//   k6 run -e BASE_URL=http://localhost:8080/api -e YEARS=2023,2024 -e TYPES=Camions,Voitures loadtest/dashboard.js
+// Compare http_reqs (throughput) and the p(99) of http_req_duration in the summaries. Any
+// response other than 2xx (429 included) fails the check and the run.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const YEARS = (__ENV.YEARS || '2024').split(',');
+const TYPES = (__ENV.TYPES || 'Camions').split(',');
+
+export const options = {
+  scenarios: {
+    dashboard: {
+      executor: 'constant-vus',
+      vus: 200,
+      duration: __ENV.DURATION || '2m',
+    },
+  },
+  thresholds: {
+    checks: ['rate==1'],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+function pick(values) {
+  return values[Math.floor(Math.random() * values.length)];
+}
+
+// Parameters vary between requests, so repeated identical queries do not dominate the run
+const PATHS = [
+  () => `/records/monthly-aggregation?vehicleType=${pick(TYPES)}&year=${pick(YEARS)}`,
+  () => `/records/performance?type=${pick(TYPES)}`,
+  () => `/regression`,
+  () => `/facets`,
+  () => `/notifications/unread/count`,
+];
+
+export default function () {
+  const path = pick(PATHS)();
+  const res = http.get(`${BASE_URL}${path}`, { tags: { endpoint: path.split('?')[0] } });
+  check(res, { 'status is 2xx': (r) => r.status >= 200 && r.status < 300 });
+}
@@ -0,0 +1,103 @@
+package com.carburant.backend.config;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executors for background work that must not hold servlet threads.
+ *
+ * With spring.threads.virtual.enabled=true on a Java 21+ runtime, Spring Boot
+ * serves Tomcat requests on virtual threads and the executors below switch to
+ * virtual threads as well; otherwise they use platform thread pools.
+ */
+@Slf4j
+@Configuration
+public class AsyncConfig {
+
+    @Value("${app.import.pool-size:2}")
+    private int importPoolSize;
+
+    @Value("${app.import.queue-capacity:10}")
+    private int importQueueCapacity;
+
+    @Value("${app.anomaly-scan.concurrency:8}")
+    private int anomalyScanConcurrency;
+
+    @Value("${app.anomaly-scan.virtual-concurrency:64}")
+    private int anomalyScanVirtualConcurrency;
+
+    @Value("${app.regression-batch.parallelism:0}")
+    private int regressionParallelism;
+
+    /**
+     * Bounded executor for upload imports: a fixed number of workers and a bounded
+     * queue, so a burst of uploads is rejected instead of exhausting memory.
+     * In virtual mode the workers are virtual threads; the bounds are kept because
+     * each import holds a parsed workbook in memory.
+     */
+    @Bean(name = "importExecutor")
+    public AsyncTaskExecutor importExecutor(Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(importPoolSize);
+        executor.setMaxPoolSize(importPoolSize);
+        executor.setQueueCapacity(importQueueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        if (isVirtual(environment)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("import-").getVirtualThreadFactory());
+        }
+        return executor;
+    }
+
+    /**
+     * Executor for the per-record SER lookups of the anomaly scan. Platform mode uses
+     * a small pool; virtual mode starts one virtual thread per record, throttled so
+     * the scan cannot exhaust the MongoDB connection pool.
+     */
+    @Bean(name = "anomalyScanExecutor")
+    public AsyncTaskExecutor anomalyScanExecutor(Environment environment) {
+        if (isVirtual(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("anomaly-scan-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(anomalyScanVirtualConcurrency);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(anomalyScanConcurrency);
+        executor.setMaxPoolSize(anomalyScanConcurrency);
+        executor.setThreadNamePrefix("anomaly-scan-");
+        return executor;
+    }
+
+    /**
+     * Work-stealing pool for the fits of the batch regression job. The fits are pure CPU
+     * work, so the pool is sized to the cores (or app.regression-batch.parallelism) and
+     * stays on platform threads in virtual mode.
+     */
+    @Bean(name = "regressionPool", destroyMethod = "shutdown")
+    public ForkJoinPool regressionPool() {
+        int parallelism = regressionParallelism > 0 ? regressionParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    private boolean isVirtual(Environment environment) {
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        if (!virtual && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled is set but the runtime is Java {}; using platform threads",
+                Runtime.version().feature());
+        }
+        return virtual;
+    }
+}
@@ -0,0 +1,114 @@
+package com.carburant.backend.config;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.carburant.backend.service.DataVersionService;
+import com.carburant.backend.service.ExcelService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Caffeine caches for the hot read paths.
+ *
+ * Each cache has its own Caffeine spec (size and TTL) and records statistics,
+ * which Spring Boot binds to Micrometer and exposes on /actuator/prometheus.
+ * The vehicle records and extraction results caches hold whole lists of records,
+ * so they are bounded by the number of records they hold (maximumWeight) rather
+ * than by the number of entries.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String VEHICLE_RECORDS = "vehicleRecords";
+    public static final String MONTHLY_AGGREGATION = "monthlyAggregation";
+    public static final String REGRESSION_RESULTS = "regressionResults";
+    public static final String SER_EQUATIONS = "serEquations";
+    public static final String FACETS = "facets";
+    public static final String UPLOAD_SHEETS = "uploadSheets";
+    public static final String EXTRACTION_RESULTS = "extractionResults";
+
+    @Value("${app.cache.vehicle-records.spec:maximumWeight=200000,expireAfterWrite=10m}")
+    private String vehicleRecordsSpec;
+
+    @Value("${app.cache.monthly-aggregation.spec:maximumSize=100,expireAfterWrite=30m}")
+    private String monthlyAggregationSpec;
+
+    @Value("${app.cache.regression-results.spec:maximumSize=500,expireAfterWrite=60m}")
+    private String regressionResultsSpec;
+
+    @Value("${app.cache.ser-equations.spec:maximumSize=20,expireAfterWrite=60m}")
+    private String serEquationsSpec;
+
+    @Value("${app.cache.facets.spec:maximumSize=50,expireAfterWrite=30m}")
+    private String facetsSpec;
+
+    @Value("${app.cache.upload-sheets.spec:maximumSize=500,expireAfterAccess=30m}")
+    private String uploadSheetsSpec;
+
+    @Value("${app.cache.extraction-results.spec:maximumWeight=100000,expireAfterAccess=30m}")
+    private String extractionResultsSpec;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                Cache adapted = super.adaptCaffeineCache(name, cache);
+                return VEHICLE_RECORDS.equals(name) ? new VehicleRecordsCache(adapted) : adapted;
+            }
+        };
+        // Only the caches registered below exist; unknown cache names fail fast
+        cacheManager.setCacheNames(List.of());
+        register(cacheManager, VEHICLE_RECORDS, vehicleRecordsSpec);
+        register(cacheManager, MONTHLY_AGGREGATION, monthlyAggregationSpec);
+        register(cacheManager, REGRESSION_RESULTS, regressionResultsSpec);
+        register(cacheManager, SER_EQUATIONS, serEquationsSpec);
+        register(cacheManager, FACETS, facetsSpec);
+        register(cacheManager, UPLOAD_SHEETS, uploadSheetsSpec);
+        register(cacheManager, EXTRACTION_RESULTS, extractionResultsSpec);
+        return cacheManager;
+    }
+
+    @Bean
+    public KeyGenerator recordsKeyGenerator(DataVersionService dataVersionService) {
+        return new DataVersionKeyGenerator(dataVersionService, DataVersionService.RECORDS);
+    }
+
+    @Bean
+    public KeyGenerator regressionKeyGenerator(DataVersionService dataVersionService) {
+        return new DataVersionKeyGenerator(dataVersionService, DataVersionService.REGRESSION);
+    }
+
+    private void register(CaffeineCacheManager cacheManager, String name, String spec) {
+        Caffeine<Object, Object> builder = Caffeine.from(spec).recordStats();
+        if (spec.contains("maximumWeight")) {
+            builder.weigher((Object key, Object value) -> Math.max(1, weight(value)));
+        }
+        cacheManager.registerCustomCache(name, builder.build());
+    }
+
+    /**
+     * A list weighs its number of elements, an extraction result its number of records,
+     * any other value weighs 1
+     */
+    private static int weight(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (value instanceof ExcelService.ExtractionResult extraction) {
+            return extraction.getVehicleRecords().size();
+        }
+        return 1;
+    }
+}
@@ -83,6 +83,9 @@ public class CorsConfig {
         // Add exposed headers if needed
         config.addExposedHeader("Access-Control-Allow-Origin");
         config.addExposedHeader("Access-Control-Allow-Credentials");
+        config.addExposedHeader("ETag");
+        config.addExposedHeader("X-Total-Count");
+        config.addExposedHeader("X-Upload-Token");
         
         // Apply this configuration to all paths
         source.registerCorsConfiguration("/**", config);
@@ -0,0 +1,55 @@
+package com.carburant.backend.config;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import com.carburant.backend.service.DataVersionService;
+
+/**
+ * Cache key generator that stamps every key with the data version of its scope.
+ *
+ * The scope is read from the arguments named type/vehicleType, year and region
+ * (other arguments only discriminate the key). A save or delete bumps the version
+ * of exactly the scopes it touches, so only the entries of those scopes stop
+ * being served; superseded entries age out under the cache size and TTL bounds.
+ * A read racing a write can never re-populate a stale entry under the new version.
+ */
+public class DataVersionKeyGenerator implements KeyGenerator {
+
+    private final DataVersionService dataVersionService;
+    private final String namespace;
+
+    public DataVersionKeyGenerator(DataVersionService dataVersionService, String namespace) {
+        this.dataVersionService = dataVersionService;
+        this.namespace = namespace;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        String type = null;
+        String year = null;
+        String region = null;
+
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length && i < params.length; i++) {
+            if (!(params[i] instanceof String value)) {
+                continue;
+            }
+            switch (parameters[i].getName()) {
+                case "type", "vehicleType" -> type = value;
+                case "year" -> year = value;
+                case "region" -> region = value;
+                default -> { }
+            }
+        }
+
+        Object[] elements = new Object[params.length + 2];
+        elements[0] = method.getName();
+        elements[1] = dataVersionService.version(namespace, type, year, region);
+        System.arraycopy(params, 0, elements, 2, params.length);
+        return new SimpleKey(elements);
+    }
+}
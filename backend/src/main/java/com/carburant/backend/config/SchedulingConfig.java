@@ -0,0 +1,12 @@
+package com.carburant.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled maintenance jobs (file retention)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
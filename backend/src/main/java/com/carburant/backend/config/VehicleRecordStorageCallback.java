@@ -0,0 +1,29 @@
+package com.carburant.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.service.StorageMaintenanceService;
+import com.carburant.backend.service.StorageMaintenanceService.RawValuesMode;
+
+/**
+ * Applies the configured raw-values mode (app.storage.raw-values) to every vehicle record
+ * before it is written, so new data is stored in the same form the storage migration produces
+ */
+@Component
+public class VehicleRecordStorageCallback implements BeforeConvertCallback<VehicleRecord> {
+
+    private final RawValuesMode rawValuesMode;
+
+    public VehicleRecordStorageCallback(@Value("${app.storage.raw-values:keep}") RawValuesMode rawValuesMode) {
+        this.rawValuesMode = rawValuesMode;
+    }
+
+    @Override
+    public VehicleRecord onBeforeConvert(VehicleRecord entity, String collection) {
+        StorageMaintenanceService.applyRawValuesMode(entity, rawValuesMode);
+        return entity;
+    }
+}
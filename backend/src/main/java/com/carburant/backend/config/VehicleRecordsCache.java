@@ -0,0 +1,93 @@
+package com.carburant.backend.config;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import com.carburant.backend.model.VehicleRecord;
+
+/**
+ * Cache of record lists that never shares entities with its callers.
+ *
+ * VehicleRecord is a mutable entity and callers set derived fields on the records
+ * they get back (e.g. IPE_SER values). Lists are stored as unmodifiable snapshots
+ * and every read returns an unmodifiable list of fresh copies, so a caller that
+ * mutates a record cannot change what the next caller sees.
+ */
+class VehicleRecordsCache implements Cache {
+
+    private final Cache delegate;
+
+    VehicleRecordsCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        return wrapper != null ? new SimpleValueWrapper(copy(wrapper.get())) : null;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return type != null ? type.cast(copy(delegate.get(key, type))) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) copy(delegate.get(key, () -> copy(valueLoader.call())));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, copy(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, copy(value));
+        return existing != null ? new SimpleValueWrapper(copy(existing.get())) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    private static Object copy(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return value;
+        }
+        return list.stream()
+            .map(element -> element instanceof VehicleRecord record ? record.copy() : element)
+            .toList();
+    }
+}
@@ -32,7 +32,7 @@ public class ConfigController {
     public ResponseEntity<Map<String, Object>> getVehicleTypes() {
         try {
             // Get distinct vehicle types from the database
-            List<String> vehicleTypes = vehicleService.getCachedSheetNames();
+            List<String> vehicleTypes = vehicleService.getVehicleTypes();
             List<String> regions = List.of("Tunis", "MJEZ ELBEB");
 
             // Return the configuration data
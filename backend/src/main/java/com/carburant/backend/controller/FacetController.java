@@ -0,0 +1,73 @@
+package com.carburant.backend.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.carburant.backend.service.DataVersionService;
+import com.carburant.backend.service.FacetService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controller exposing the distinct values used by the dashboard filters
+ */
+@Slf4j
+@RestController
+@RequestMapping("/facets")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class FacetController {
+
+    private final FacetService facetService;
+    private final DataVersionService dataVersionService;
+
+    /**
+     * Get every filter facet (types, regions, years, months, matricules) in one call
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, List<String>>> getAllFacets(
+            @RequestParam(value = "type", required = false) String type,
+            WebRequest request) {
+        String etag = dataVersionService.etag(DataVersionService.RECORDS, type, null, null);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            return ResponseEntity.ok().eTag(etag).body(facetService.getAllFacets(type));
+        } catch (Exception e) {
+            log.error("Error fetching filter facets", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Get the distinct values of a single facet
+     */
+    @GetMapping("/{facet}")
+    public ResponseEntity<?> getFacet(
+            @PathVariable String facet,
+            @RequestParam(value = "type", required = false) String type) {
+        if (!FacetService.FACET_FIELDS.containsKey(facet)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Unknown facet: " + facet,
+                "facets", FacetService.FACET_FIELDS.keySet()));
+        }
+        try {
+            return ResponseEntity.ok(facetService.getDistinctValues(facet, type));
+        } catch (Exception e) {
+            log.error("Error fetching facet {}", facet, e);
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -5,9 +5,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,6 +28,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.carburant.backend.model.FileDocument;
 import com.carburant.backend.model.dto.FileDTO;
+import com.carburant.backend.model.dto.FileDeletionResult;
 import com.carburant.backend.service.FileService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +42,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class FileController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     @Autowired
     private FileService fileService;
 
@@ -90,20 +97,23 @@ public class FileController {
     }
 
     /**
-     * Get file upload history
+     * Get file upload history, newest first. Only metadata is read; without
+     * a page size every matching file is returned.
      * 
-     * @return List of file documents
+     * @param page The zero-based page index
+     * @param size The page size (optional)
+     * @return List of file metadata, with the total count in X-Total-Count
      */
     @GetMapping("/history")
-    public ResponseEntity<List<FileDTO>> getFileHistory() {
-        log.info("Getting file upload history");
-        
-        List<FileDocument> files = fileService.getAllFiles();
-        List<FileDTO> fileDTOs = files.stream()
-            .map(FileDTO::fromDocument)
-            .collect(Collectors.toList());
+    public ResponseEntity<?> getFileHistory(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        log.info("Getting file upload history (page: {}, size: {})", page, size);
         
-        return ResponseEntity.ok(fileDTOs);
+        if (!isValidPage(page, size)) {
+            return invalidPage(page, size);
+        }
+        return pageResponse(fileService.getAllFiles(historyPage(page, size)));
     }
 
     /**
@@ -127,7 +137,8 @@ public class FileController {
     }
 
     /**
-     * Download file by ID
+     * Download file by ID. The content is streamed from GridFS and
+     * Range requests are answered with partial content.
      * 
      * @param id The file ID
      * @return The file content
@@ -140,13 +151,16 @@ public class FileController {
         
         if (fileOpt.isPresent()) {
             FileDocument file = fileOpt.get();
-            byte[] content = file.getContent();
+            Optional<Resource> content = fileService.getFileContent(file);
             
-            if (content != null) {
+            if (content.isPresent()) {
+                MediaType contentType = file.getContentType() != null
+                    ? MediaType.parseMediaType(file.getContentType())
+                    : MediaType.APPLICATION_OCTET_STREAM;
                 return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFilename() + "\"")
-                    .contentType(MediaType.parseMediaType(file.getContentType()))
-                    .body(content);
+                    .contentType(contentType)
+                    .body(content.get());
             }
         }
         
@@ -163,10 +177,13 @@ public class FileController {
     public ResponseEntity<?> deleteFile(@PathVariable String id) {
         log.info("Deleting file with ID: {}", id);
         
-        boolean deleted = fileService.deleteFile(id);
+        Optional<FileDeletionResult> deleted = fileService.deleteFile(id);
         
-        if (deleted) {
-            return ResponseEntity.ok(Map.of("success", true));
+        if (deleted.isPresent()) {
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "deletedRecords", deleted.get().getDeletedRecords(),
+                "deletedNotifications", deleted.get().getDeletedNotifications()));
         }
         
         return ResponseEntity.notFound().build();
@@ -176,35 +193,61 @@ public class FileController {
      * Get files by vehicle type
      * 
      * @param vehicleType The vehicle type
-     * @return List of file documents
+     * @param page The zero-based page index
+     * @param size The page size (optional)
+     * @return List of file metadata, newest first
      */
     @GetMapping("/by-vehicle/{vehicleType}")
-    public ResponseEntity<List<FileDTO>> getFilesByVehicleType(@PathVariable String vehicleType) {
+    public ResponseEntity<?> getFilesByVehicleType(
+            @PathVariable String vehicleType,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false) Integer size) {
         log.info("Getting files by vehicle type: {}", vehicleType);
         
-        List<FileDocument> files = fileService.getFilesByVehicleType(vehicleType);
-        List<FileDTO> fileDTOs = files.stream()
-            .map(FileDTO::fromDocument)
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(fileDTOs);
+        if (!isValidPage(page, size)) {
+            return invalidPage(page, size);
+        }
+        return pageResponse(fileService.getFilesByVehicleType(vehicleType, historyPage(page, size)));
     }
     
     /**
      * Get files by year
      * 
      * @param year The year
-     * @return List of file documents
+     * @param page The zero-based page index
+     * @param size The page size (optional)
+     * @return List of file metadata, newest first
      */
     @GetMapping("/by-year/{year}")
-    public ResponseEntity<List<FileDTO>> getFilesByYear(@PathVariable int year) {
+    public ResponseEntity<?> getFilesByYear(
+            @PathVariable int year,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false) Integer size) {
         log.info("Getting files by year: {}", year);
         
-        List<FileDocument> files = fileService.getFilesByYear(year);
-        List<FileDTO> fileDTOs = files.stream()
-            .map(FileDTO::fromDocument)
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(fileDTOs);
+        if (!isValidPage(page, size)) {
+            return invalidPage(page, size);
+        }
+        return pageResponse(fileService.getFilesByYear(year, historyPage(page, size)));
+    }
+    
+    private static boolean isValidPage(int page, Integer size) {
+        return page >= 0 && (size == null || size >= 1);
+    }
+    
+    private static ResponseEntity<?> invalidPage(int page, Integer size) {
+        return ResponseEntity.badRequest().body(Map.of(
+            "error", "Invalid page: page must be >= 0 and size >= 1 (page " + page + ", size " + size + ")"));
+    }
+    
+    private Pageable historyPage(int page, Integer size) {
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "uploadDate");
+        return size == null ? Pageable.unpaged(newestFirst) : PageRequest.of(page, size, newestFirst);
+    }
+    
+    private ResponseEntity<List<FileDTO>> pageResponse(Page<FileDTO> files) {
+        return ResponseEntity.ok()
+            .header(TOTAL_COUNT_HEADER, String.valueOf(files.getTotalElements()))
+            .body(files.getContent());
     }
 }
\ No newline at end of file
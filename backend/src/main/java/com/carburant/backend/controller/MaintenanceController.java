@@ -0,0 +1,120 @@
+package com.carburant.backend.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.carburant.backend.migration.MigrationRunner;
+import com.carburant.backend.model.FileRetentionReport;
+import com.carburant.backend.model.SchemaMigration;
+import com.carburant.backend.model.StorageMigrationReport;
+import com.carburant.backend.service.FileRetentionService;
+import com.carburant.backend.service.StorageMaintenanceService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controller for storage maintenance jobs
+ */
+@Slf4j
+@RestController
+@RequestMapping("/maintenance")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class MaintenanceController {
+
+    private final StorageMaintenanceService storageMaintenanceService;
+    private final FileRetentionService fileRetentionService;
+    private final MigrationRunner migrationRunner;
+
+    /**
+     * Rewrite existing data in storage-efficient form: compress archived file content and
+     * compact or drop raw values
+     *
+     * @param rawValues Raw-values mode to apply (keep, compact, drop); defaults to app.storage.raw-values
+     * @return Bytes before and after per collection
+     */
+    @PostMapping("/storage-migration")
+    public ResponseEntity<?> migrateStorage(
+            @RequestParam(value = "rawValues", required = false) String rawValues) {
+        StorageMaintenanceService.RawValuesMode mode = null;
+        if (rawValues != null) {
+            try {
+                mode = StorageMaintenanceService.RawValuesMode.valueOf(rawValues.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid rawValues: " + rawValues + " (keep, compact or drop)"));
+            }
+        }
+        log.info("Starting storage migration (raw values: {})",
+            mode != null ? mode : storageMaintenanceService.getRawValuesMode());
+        try {
+            StorageMigrationReport report = storageMaintenanceService.migrate(mode);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            log.error("Storage migration failed", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Run the file retention job now instead of waiting for its schedule
+     *
+     * @param mode Retention mode to apply (purge, archive); defaults to app.file-retention.mode
+     * @return Files handled and bytes reclaimed
+     */
+    @PostMapping("/file-retention")
+    public ResponseEntity<?> runFileRetention(
+            @RequestParam(value = "mode", required = false) String mode) {
+        FileRetentionService.RetentionMode retentionMode = null;
+        if (mode != null) {
+            try {
+                retentionMode = FileRetentionService.RetentionMode.valueOf(mode.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid mode: " + mode + " (purge or archive)"));
+            }
+        }
+        log.info("Starting file retention (mode: {})",
+            retentionMode != null ? retentionMode : fileRetentionService.getMode());
+        FileRetentionReport report = fileRetentionService.run(retentionMode);
+        if (report == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "File retention is already running"));
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Startup migrations run so far, applied or failed, in version order
+     */
+    @GetMapping("/migrations")
+    public ResponseEntity<List<SchemaMigration>> getMigrations() {
+        return ResponseEntity.ok(migrationRunner.getHistory());
+    }
+
+    /**
+     * Run the pending startup migrations now, e.g. to retry one that failed
+     *
+     * @return The number of migrations applied
+     */
+    @PostMapping("/migrations")
+    public ResponseEntity<?> runMigrations() {
+        int applied = migrationRunner.runPending();
+        if (applied < 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Migrations are already running"));
+        }
+        return ResponseEntity.ok(Map.of("applied", applied));
+    }
+}
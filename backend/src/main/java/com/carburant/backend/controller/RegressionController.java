@@ -1,8 +1,12 @@
 package com.carburant.backend.controller;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,14 +18,26 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.carburant.backend.model.ModelSelection;
 import com.carburant.backend.model.MonthlyData;
+import com.carburant.backend.model.PredictionRequest;
+import com.carburant.backend.model.RegressionBatchReport;
 import com.carburant.backend.model.RegressionCoefficients;
+import com.carburant.backend.model.RegressionDiagnostics;
 import com.carburant.backend.model.RegressionResult;
 import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.service.BootstrapRegressionService;
+import com.carburant.backend.service.DataVersionService;
+import com.carburant.backend.service.ModelSelectionService;
+import com.carburant.backend.service.RegressionBatchService;
 import com.carburant.backend.service.RegressionService;
-import com.carburant.backend.service.ValidationService;
+import com.carburant.backend.service.RegressionStatisticsService;
+import com.carburant.backend.service.RollingRegressionService;
+import com.carburant.backend.service.SERService;
 import com.carburant.backend.service.VehicleService;
+import com.carburant.backend.utils.ClosedFormRegression;
 import com.carburant.backend.utils.DataTransformUtils;
 
 import lombok.RequiredArgsConstructor;
@@ -35,14 +51,26 @@ import lombok.extern.slf4j.Slf4j;
 public class RegressionController {
 
     private final RegressionService regressionService;
+    private final RegressionStatisticsService regressionStatisticsService;
+    private final RegressionBatchService regressionBatchService;
+    private final RollingRegressionService rollingRegressionService;
+    private final BootstrapRegressionService bootstrapRegressionService;
+    private final ModelSelectionService modelSelectionService;
+    private final SERService serService;
     private final VehicleService vehicleService;
-    private final ValidationService validationService;
+    private final DataVersionService dataVersionService;
 
     @GetMapping("/search")
     public ResponseEntity<RegressionResult> searchRegressionResult(
             @RequestParam String type,
             @RequestParam String year,
-            @RequestParam(required = false) String region) {
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "true") boolean diagnostics,
+            WebRequest request) {
+        String etag = dataVersionService.etag(DataVersionService.REGRESSION, type, year, region);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             Optional<RegressionResult> result;
             if (region != null) {
@@ -50,7 +78,10 @@ public class RegressionController {
             } else {
                 result = regressionService.getRegressionResultByTypeAndYear(type, year);
             }
-            return result.map(ResponseEntity::ok)
+            if (diagnostics) {
+                result = result.map(regressionService::withDiagnostics);
+            }
+            return result.map(found -> ResponseEntity.ok().eTag(etag).body(found))
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             log.error("Error searching regression results", e);
@@ -59,10 +90,14 @@ public class RegressionController {
     }
 
     @GetMapping
-    public ResponseEntity<List<RegressionResult>> getAllRegressionResults() {
+    public ResponseEntity<List<RegressionResult>> getAllRegressionResults(WebRequest request) {
+        String etag = dataVersionService.etag(DataVersionService.REGRESSION, null, null, null);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             List<RegressionResult> results = regressionService.getAllRegressionResults();
-            return ResponseEntity.ok(results);
+            return ResponseEntity.ok().eTag(etag).body(results);
         } catch (Exception e) {
             log.error("Error fetching regression results", e);
             return ResponseEntity.internalServerError().build();
@@ -70,9 +105,12 @@ public class RegressionController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<RegressionResult> getRegressionResult(@PathVariable String id) {
+    public ResponseEntity<RegressionResult> getRegressionResult(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "true") boolean diagnostics) {
         try {
             return regressionService.getRegressionResultById(id)
+                    .map(found -> diagnostics ? regressionService.withDiagnostics(found) : found)
                     .map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
@@ -81,6 +119,18 @@ public class RegressionController {
         }
     }
 
+    @GetMapping("/{id}/diagnostics")
+    public ResponseEntity<RegressionDiagnostics> getRegressionDiagnostics(@PathVariable String id) {
+        try {
+            return regressionService.getDiagnostics(id)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Error fetching regression diagnostics with id: {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/monthly-data")
     public ResponseEntity<List<MonthlyData>> getMonthlyData(
             @RequestParam String vehicleType,
@@ -102,6 +152,154 @@ public class RegressionController {
         }
     }
 
+    /**
+     * Fit the SER model from the maintained sufficient statistics, without reading the records
+     *
+     * @param model VOITURE or CAMION; defaults to the model of the vehicle type
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<?> getIncrementalRegression(
+            @RequestParam String vehicleType,
+            @RequestParam String year,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String model) {
+        if (model != null && !ClosedFormRegression.CAR.equalsIgnoreCase(model)
+                && !ClosedFormRegression.TRUCK.equalsIgnoreCase(model)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported model: " + model));
+        }
+        try {
+            return regressionStatisticsService.fit(vehicleType, year, region, model)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error fitting regression from statistics", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Choose the model form of a scope (km; km + tonnage; km + tonnage + interaction) by
+     * k-fold cross-validation and store it; works for any vehicle type
+     */
+    @PostMapping("/model-selection")
+    public ResponseEntity<?> selectModel(
+            @RequestParam String vehicleType,
+            @RequestParam String year,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "5") int folds,
+            @RequestParam(defaultValue = "42") long seed) {
+        try {
+            return ResponseEntity.ok(modelSelectionService.select(vehicleType, year, region, folds, seed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error selecting regression model", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/model-selection")
+    public ResponseEntity<ModelSelection> getModelSelection(
+            @RequestParam String vehicleType,
+            @RequestParam String year,
+            @RequestParam(required = false) String region) {
+        return modelSelectionService.getSelection(vehicleType, year, region)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Bootstrap percentile intervals of the SER coefficients of a scope
+     *
+     * @param budgetMs Time budget in milliseconds; the intervals use the resamples done within it
+     */
+    @GetMapping("/bootstrap")
+    public ResponseEntity<?> bootstrapRegression(
+            @RequestParam String vehicleType,
+            @RequestParam String year,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) Integer resamples,
+            @RequestParam(defaultValue = "0.95") double confidence,
+            @RequestParam(required = false) Long budgetMs,
+            @RequestParam(required = false) Long seed) {
+        try {
+            return ResponseEntity.ok(bootstrapRegressionService.bootstrap(vehicleType, year, region, resamples, confidence,
+                budgetMs != null ? Duration.ofMillis(budgetMs) : null, seed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error bootstrapping regression", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * What-if predictions: consumption and IPE of many (kilométrage, tonnage) scenarios
+     * with a stored SER equation, computed in one call without saving anything
+     */
+    @PostMapping("/predict")
+    public ResponseEntity<?> predict(@RequestBody PredictionRequest request) {
+        try {
+            return serService.predict(request)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No regression equation found for this request")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error predicting scenarios", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Coefficient trajectory: the SER equation fitted over rolling or expanding windows of months
+     *
+     * @param window Months per window (rolling) or of the first window (expanding)
+     */
+    @GetMapping("/trajectory")
+    public ResponseEntity<?> getRegressionTrajectory(
+            @RequestParam String vehicleType,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "rolling") String mode,
+            @RequestParam(defaultValue = "12") int window,
+            @RequestParam(required = false) String fromYear,
+            @RequestParam(required = false) String toYear) {
+        RollingRegressionService.WindowMode windowMode;
+        try {
+            windowMode = RollingRegressionService.WindowMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid mode: " + mode + " (rolling or expanding)"));
+        }
+        try {
+            return ResponseEntity.ok(rollingRegressionService.trajectory(vehicleType, region, windowMode, window,
+                fromYear, toYear));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error computing regression trajectory", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Refit the equations of every (vehicleType, year, region) combination and store them
+     *
+     * @return Combinations fitted and the time taken by each fit
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> runBatchRegression() {
+        log.info("Starting batch regression");
+        RegressionBatchReport report = regressionBatchService.run();
+        if (report == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Batch regression is already running"));
+        }
+        return ResponseEntity.ok(report);
+    }
+
     @PostMapping("/analyze")
     public ResponseEntity<RegressionResult> analyzeConsumption(
             @RequestParam String vehicleType,
@@ -111,16 +309,11 @@ public class RegressionController {
         try {
             log.info("Analyzing consumption for type: {}, year: {}, region: {}", vehicleType, year, region);
             
-            // First check if analysis already exists
-            Optional<RegressionResult> existingResult;
-            if (region != null) {
-                existingResult = regressionService.getRegressionResultByTypeAndYearAndRegion(vehicleType, year, region);
-            } else {
-                existingResult = regressionService.getRegressionResultByTypeAndYear(vehicleType, year);
-            }
+            // First check if analysis already exists; results are stored under the model type
+            Optional<RegressionResult> existingResult = regressionService.getStoredResult(vehicleType, year, region);
             
             if (existingResult.isPresent()) {
-                return ResponseEntity.ok(existingResult.get());
+                return ResponseEntity.ok(regressionService.withDiagnostics(existingResult.get()));
             }
             
             // If no existing analysis, perform new one
@@ -138,18 +331,10 @@ public class RegressionController {
             
             List<MonthlyData> monthlyData = DataTransformUtils.transformToMonthlyData(records, vehicleType, year);
             
-            // Perform validation before regression
-            List<String> validationWarnings = validationService.validateData(monthlyData, vehicleType);
-            
-            // Perform regression analysis
-            RegressionResult result = regressionService.performRegression(vehicleType, monthlyData);
-            
-            // Add validation results
-            result.setWarnings(validationWarnings);
-            result.setHasOutliers(validationWarnings.stream().anyMatch(w -> w.contains("outlier")));
-            result.setHasMulticollinearity(validationWarnings.stream().anyMatch(w -> w.contains("correlation")));
+            // Perform regression analysis (validation warnings and flags are set by the regression)
+            RegressionResult result = regressionService.computeRegression(vehicleType, monthlyData);
             
-            // Save result with metadata
+            // Save result with metadata, once the key (type, vehicle type, year, region) is complete
             result.setYear(year);
             result.setVehicleType(vehicleType);
             result.setRegion(region);
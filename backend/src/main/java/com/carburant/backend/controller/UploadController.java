@@ -8,17 +8,27 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.carburant.backend.exception.StagedUploadNotFoundException;
+import com.carburant.backend.exception.UploadTooLargeException;
 import com.carburant.backend.model.FileDocument;
+import com.carburant.backend.model.ImportJob;
+import com.carburant.backend.model.StagedUpload;
 import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.model.dto.ImportDiffResult;
 import com.carburant.backend.service.FileService;
+import com.carburant.backend.service.ImportJobService;
+import com.carburant.backend.service.UploadStagingService;
 import com.carburant.backend.service.VehicleService;
 
 @RestController
@@ -27,19 +37,25 @@ import com.carburant.backend.service.VehicleService;
 public class UploadController {
 
     private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+    private static final String UPLOAD_TOKEN_HEADER = "X-Upload-Token";
     private final VehicleService vehicleService;
     private final FileService fileService;
+    private final ImportJobService importJobService;
+    private final UploadStagingService uploadStagingService;
 
     @Autowired
-    public UploadController(VehicleService vehicleService, FileService fileService) {
+    public UploadController(VehicleService vehicleService, FileService fileService, ImportJobService importJobService,
+                            UploadStagingService uploadStagingService) {
         this.vehicleService = vehicleService;
         this.fileService = fileService;
+        this.importJobService = importJobService;
+        this.uploadStagingService = uploadStagingService;
     }
 
     /**
-     * Upload an Excel file and extract sheet names
+     * Upload an Excel file, stage it and extract sheet names
      * @param file The Excel file to upload
-     * @return List of sheet names in the uploaded file
+     * @return List of sheet names in the uploaded file and the token to pass to /extract and /save
      */
     @PostMapping("/upload")
     public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file) {
@@ -66,11 +82,14 @@ public class UploadController {
             }
             
             logger.info("Processing file: {}", filename);
-            // Save file for later extraction and get sheet names
-            List<String> sheetNames = vehicleService.processAndCacheFile(file);
+            // Stage the file for later extraction and get sheet names
+            StagedUpload upload = uploadStagingService.stage(file);
             
             // Return the sheet names with the expected key 'sheets'
-            return ResponseEntity.ok(Map.of("sheets", sheetNames));
+            return ResponseEntity.ok(Map.of("sheets", upload.getSheetNames(), "uploadToken", upload.getToken()));
+        } catch (UploadTooLargeException e) {
+            logger.warn("Upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             logger.error("Error processing file", e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
@@ -79,16 +98,18 @@ public class UploadController {
 
     /**
      * Extract data from a specific sheet in the uploaded Excel file
-     * @param file The Excel file to extract data from
+     * @param file The Excel file to extract data from (optional when an upload token is given)
+     * @param uploadToken The token returned by /upload (optional when a file is given)
      * @param sheetName The name of the sheet to extract from
-     * @return List of extracted records
+     * @return List of extracted records; the X-Upload-Token header identifies the staged file
      */
     @PostMapping("/extract")
     public ResponseEntity<?> extractData(
-            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "uploadToken", required = false) String uploadToken,
             @RequestParam("sheetName") String sheetName) {
         try {
-            if (file == null || file.isEmpty()) {
+            if (!hasUpload(file, uploadToken)) {
                 logger.error("File is empty");
                 return ResponseEntity.badRequest().body(Map.of("error", "No file provided"));
             }
@@ -98,15 +119,19 @@ public class UploadController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Sheet name is required"));
             }
             
-            logger.info("Extracting data from sheet: {} in file: {}", sheetName, file.getOriginalFilename());
-            
-            // First process and cache the file
-            vehicleService.processAndCacheFile(file);
+            StagedUpload upload = resolveUpload(file, uploadToken);
+            logger.info("Extracting data from sheet: {} in file: {}", sheetName, upload.getFilename());
             
-            // Then extract data from the cached file WITHOUT saving to database
-            List<VehicleRecord> records = vehicleService.extractDataFromCacheWithoutSaving(sheetName);
+            // Extract data from the staged file WITHOUT saving to database
+            List<VehicleRecord> records = uploadStagingService.extractRecords(upload, sheetName);
             
-            return ResponseEntity.ok(records);
+            return ResponseEntity.ok().header(UPLOAD_TOKEN_HEADER, upload.getToken()).body(records);
+        } catch (StagedUploadNotFoundException e) {
+            logger.warn("Staged upload unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", e.getMessage()));
+        } catch (UploadTooLargeException e) {
+            logger.warn("Upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error extracting data", e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
@@ -120,8 +145,7 @@ public class UploadController {
     @GetMapping("/vehicles")
     public ResponseEntity<?> getVehicleTypes() {
         try {
-            // Get sheet names from the cached file
-            List<String> types = vehicleService.getCachedSheetNames();
+            List<String> types = vehicleService.getVehicleTypes();
             return ResponseEntity.ok(Map.of("types", types));
         } catch (Exception e) {
             logger.error("Error getting vehicle types", e);
@@ -131,26 +155,30 @@ public class UploadController {
     
     /**
      * Save extracted data to the database and store the file in MongoDB
-     * @param file The Excel file containing the data
+     * @param file The Excel file containing the data (optional when an upload token is given)
+     * @param uploadToken The token returned by /upload (optional when a file is given)
      * @param sheetName The name of the sheet to extract data from
      * @param vehicleType The type of vehicle to categorize the data (can be different from sheet name)
      * @param year The year for the data
      * @param month The month for the data (optional, defaultValue is all months)
      * @param replaceExisting Whether to replace existing data for this vehicle type/period
      * @param region The region for the data (optional, defaultValue is "All Regions")
+     * @param incremental Only write rows that are new or changed, and delete stored rows missing from the sheet
      * @return Status of the save operation
      */
     @PostMapping("/save")
     public ResponseEntity<?> saveData(
-            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "uploadToken", required = false) String uploadToken,
             @RequestParam("sheetName") String sheetName,
             @RequestParam("year") String year,
             @RequestParam(value = "month", required = false, defaultValue = "all") String month,
             @RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting,
+            @RequestParam(value = "incremental", defaultValue = "false") boolean incremental,
             @RequestParam("region") String region,
             @RequestParam("vehicleType") String vehicleType) {
         try {
-            if (file == null || file.isEmpty()) {
+            if (!hasUpload(file, uploadToken)) {
                 logger.error("File is empty");
                 return ResponseEntity.badRequest().body(Map.of("error", "No file provided"));
             }
@@ -188,11 +216,11 @@ public class UploadController {
             logger.info("Saving data for sheet: {}, vehicle type: {}, year: {}, month: {}, region: {}, replaceExisting: {}", 
                     sheetName, typeToUse, year, month, region, replaceExisting);
             
-            // First process and cache the file if not already done
-            vehicleService.processAndCacheFile(file);
+            // Use the staged file, or stage the one sent with this request
+            StagedUpload upload = resolveUpload(file, uploadToken);
             
-            // Extract data from the cached file
-            List<VehicleRecord> records = vehicleService.extractDataFromCache(sheetName);
+            // Extract data from the staged file; records are written once below
+            List<VehicleRecord> records = uploadStagingService.extractRecords(upload, sheetName);
             
             FileDocument savedFile = null;
             int yearInt = 0;
@@ -200,7 +228,8 @@ public class UploadController {
             try {
                 // Store file in MongoDB with the user-selected year
                 yearInt = Integer.parseInt(year);
-                savedFile = fileService.storeFile(file, typeToUse, yearInt, region);
+                savedFile = fileService.storeFile(upload, upload.getFilename(), upload.getContentType(), upload.getSize(),
+                    upload.getContentHash(), typeToUse, yearInt, region);
                 logger.info("File stored in MongoDB with ID: {} for year: {}", savedFile.getId(), year);
             } catch (NumberFormatException e) {
                 logger.error("Invalid year format: {}", year, e);
@@ -215,9 +244,19 @@ public class UploadController {
             
             // Save the records to the database with the user-selected year
             // Make sure we're using the same year value that was provided by the user
-            int savedCount = vehicleService.saveRecords(records, typeToUse, year, month, replaceExisting, region);
+            String fileId = savedFile != null ? savedFile.getId() : null;
+            ImportDiffResult diff = null;
+            int savedCount;
+            if (incremental) {
+                diff = vehicleService.saveRecordsIncrementally(records, typeToUse, year, month, region, fileId,
+                    savedRecord -> { });
+                savedCount = diff.getRecordCount();
+            } else {
+                savedCount = vehicleService.saveRecords(records, typeToUse, year, month, replaceExisting, region, fileId);
+            }
             
             logger.info("Saved {} records for {}/{} in region {}", savedCount, year, month, region);
+            uploadStagingService.discard(upload.getToken());
             
             // Update MongoDB file metadata with the record count if file was stored
             if (savedFile != null) {
@@ -236,15 +275,110 @@ public class UploadController {
             response.put("message", String.format("Successfully saved %d records for %s (%s) in region %s", 
                 savedCount, typeToUse, year, region));
             response.put("recordCount", savedCount);
+            if (diff != null) {
+                response.put("message", String.format(
+                    "Imported %d records for %s (%s) in region %s: %d inserted, %d updated, %d unchanged (%d relocated), %d deleted",
+                    savedCount, typeToUse, year, region, diff.getInserted(), diff.getUpdated(), diff.getUnchanged(),
+                    diff.getRelocated(), diff.getDeleted()));
+                response.put("diff", diff);
+            }
             
             if (savedFile != null) {
                 response.put("fileId", savedFile.getId());
             }
             
             return ResponseEntity.ok(response);
+        } catch (StagedUploadNotFoundException e) {
+            logger.warn("Staged upload unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", e.getMessage()));
+        } catch (UploadTooLargeException e) {
+            logger.warn("Upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error saving data", e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Submit an asynchronous import: same parameters as /save, but parsing, file storage
+     * and record writes run on the import executor and the request returns a job ID at once
+     * @return The job ID and the URL to poll for its status
+     */
+    @PostMapping("/imports")
+    public ResponseEntity<?> submitImport(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("sheetName") String sheetName,
+            @RequestParam("year") String year,
+            @RequestParam(value = "month", required = false, defaultValue = "all") String month,
+            @RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting,
+            @RequestParam(value = "incremental", defaultValue = "false") boolean incremental,
+            @RequestParam("region") String region,
+            @RequestParam("vehicleType") String vehicleType) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No file provided"));
+        }
+        if (sheetName == null || sheetName.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Sheet name is required"));
+        }
+        if (region == null || region.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Region is required"));
+        }
+        if (vehicleType == null || vehicleType.isEmpty() || vehicleType.equalsIgnoreCase("all")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A specific vehicle type is required"));
+        }
+        try {
+            Integer.parseInt(year);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid year format: " + year));
+        }
+
+        try {
+            ImportJob job = importJobService.submit(file, sheetName, vehicleType, year, month, replaceExisting, region,
+                incremental);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "jobId", job.getId(),
+                "phase", job.getPhase(),
+                "statusUrl", "/api/imports/" + job.getId()));
+        } catch (TaskRejectedException e) {
+            logger.warn("Import queue is full, rejecting upload {}", file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "Too many imports in progress, please retry later"));
+        } catch (IOException e) {
+            logger.error("Error submitting import", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the status of an asynchronous import
+     * @param jobId The job ID returned by /imports
+     * @return Phase, rows parsed, rows written and throughput of the job
+     */
+    @GetMapping("/imports/{jobId}")
+    public ResponseEntity<?> getImportStatus(@PathVariable String jobId) {
+        return importJobService.getJob(jobId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown import job: " + jobId)));
+    }
+
+    /**
+     * List recent asynchronous imports, newest first
+     */
+    @GetMapping("/imports")
+    public ResponseEntity<List<ImportJob>> getImports() {
+        return ResponseEntity.ok(importJobService.getJobs());
+    }
+
+    private boolean hasUpload(MultipartFile file, String uploadToken) {
+        return (uploadToken != null && !uploadToken.isEmpty()) || (file != null && !file.isEmpty());
+    }
+
+    private StagedUpload resolveUpload(MultipartFile file, String uploadToken) throws IOException {
+        if (uploadToken != null && !uploadToken.isEmpty()) {
+            return uploadStagingService.get(uploadToken).orElseThrow(() -> new StagedUploadNotFoundException(
+                "Upload " + uploadToken + " has expired or is unknown. Please upload the file again."));
+        }
+        return uploadStagingService.stage(file);
+    }
+}
@@ -3,11 +3,14 @@ package com.carburant.backend.controller;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -20,8 +23,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.service.DataVersionService;
+import com.carburant.backend.service.FileService;
 import com.carburant.backend.service.SERService;
 import com.carburant.backend.service.VehicleService;
 
@@ -32,19 +38,32 @@ public class VehicleController {
 
     private final VehicleService vehicleService;
     private final SERService serService;
+    private final DataVersionService dataVersionService;
+    private final FileService fileService;
     private static final Logger logger = LoggerFactory.getLogger(VehicleController.class);
     private final Map<String, Long> lastRequestTime = new ConcurrentHashMap<>();
     private final Map<String, Integer> requestCount = new ConcurrentHashMap<>();
     private static final long RATE_LIMIT_WINDOW = 5000;
-    private static final int MAX_REQUESTS_PER_WINDOW = 10;
+    private final boolean rateLimitEnabled;
+    private final int maxRequestsPerWindow;
 
     @Autowired
-    public VehicleController(VehicleService vehicleService, SERService serService) {
+    public VehicleController(VehicleService vehicleService, SERService serService, DataVersionService dataVersionService,
+                             FileService fileService,
+                             @Value("${app.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                             @Value("${app.rate-limit.max-requests:10}") int maxRequestsPerWindow) {
         this.vehicleService = vehicleService;
         this.serService = serService;
+        this.dataVersionService = dataVersionService;
+        this.fileService = fileService;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.maxRequestsPerWindow = maxRequestsPerWindow;
     }
 
     private boolean isRateLimited(String endpoint) {
+        if (!rateLimitEnabled) {
+            return false;
+        }
         long currentTime = System.currentTimeMillis();
         Long lastTime = lastRequestTime.get(endpoint);
         
@@ -57,7 +76,7 @@ public class VehicleController {
         int count = requestCount.getOrDefault(endpoint, 0) + 1;
         requestCount.put(endpoint, count);
         
-        if (count > MAX_REQUESTS_PER_WINDOW) {
+        if (count > maxRequestsPerWindow) {
             logger.warn("Rate limit exceeded for endpoint: {} - {} requests in {} ms", 
                       endpoint, count, RATE_LIMIT_WINDOW);
             return true;
@@ -221,7 +240,14 @@ public class VehicleController {
             @RequestParam(value = "vehicleType", required = false) String vehicleType,
             @RequestParam(value = "year", required = false) String year,
             @RequestParam(value = "dateFrom", required = false) String dateFrom,
-            @RequestParam(value = "dateTo", required = false) String dateTo) {
+            @RequestParam(value = "dateTo", required = false) String dateTo,
+            WebRequest request) {
+        
+        // Answer conditional requests from the data version, before touching MongoDB
+        String etag = dataVersionService.etag(DataVersionService.RECORDS, vehicleType, year, null);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         
         if (isRateLimited("getMonthlyAggregatedData")) {
             return ResponseEntity.status(429).build();
@@ -238,7 +264,7 @@ public class VehicleController {
                 dateTo
             );
             
-            return ResponseEntity.ok(aggregatedData != null ? aggregatedData : List.of());
+            return ResponseEntity.ok().eTag(etag).body(aggregatedData != null ? aggregatedData : List.of());
         } catch (Exception e) {
             logger.error("Error getting monthly aggregation data", e);
             return ResponseEntity.internalServerError().build();
@@ -248,14 +274,20 @@ public class VehicleController {
     @GetMapping("/performance")
     public ResponseEntity<List<Map<String, Object>>> getVehiclePerformanceData(
             @RequestParam("type") String type,
-            @RequestParam(value = "includeSheetData", required = false, defaultValue = "false") boolean includeSheetData) {
+            @RequestParam(value = "includeSheetData", required = false, defaultValue = "false") boolean includeSheetData,
+            WebRequest request) {
+        
+        String etag = dataVersionService.etag(DataVersionService.RECORDS, type, null, null);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         
         if ("all".equalsIgnoreCase(type) && includeSheetData) {
             List<Map<String, Object>> allData = vehicleService.getVehiclePerformanceData("all");
-            return ResponseEntity.ok(allData);
+            return ResponseEntity.ok().eTag(etag).body(allData);
         }
         
-        return ResponseEntity.ok(vehicleService.getVehiclePerformanceData(type));
+        return ResponseEntity.ok().eTag(etag).body(vehicleService.getVehiclePerformanceData(type));
     }
 
     @GetMapping("/{id}")
@@ -265,6 +297,45 @@ public class VehicleController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Source file, sheet and row a record was imported from
+     */
+    @GetMapping("/{id}/source")
+    public ResponseEntity<?> getRecordSource(@PathVariable String id) {
+        Optional<VehicleRecord> record = vehicleService.getRecordById(id);
+        if (record.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        VehicleRecord r = record.get();
+        if (r.getSourceFileId() == null || r.getSourceRow() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "No source row recorded for record " + id));
+        }
+        
+        Map<String, Object> source = new HashMap<>();
+        source.put("recordId", r.getId());
+        source.put("fileId", r.getSourceFileId());
+        source.put("sheet", r.getSourceSheet());
+        source.put("row", r.getSourceRow());
+        fileService.getFile(r.getSourceFileId()).ifPresentOrElse(file -> {
+            source.put("filename", file.getFilename());
+            source.put("fileAvailable", true);
+            source.put("downloadUrl", "/api/files/" + file.getId() + "/download");
+        }, () -> source.put("fileAvailable", false));
+        return ResponseEntity.ok(source);
+    }
+
+    /**
+     * Records imported from a sheet of a stored file, optionally a single row
+     */
+    @GetMapping("/by-source")
+    public ResponseEntity<List<VehicleRecord>> getRecordsBySource(
+            @RequestParam String fileId,
+            @RequestParam String sheet,
+            @RequestParam(required = false) Integer row) {
+        return ResponseEntity.ok(vehicleService.getRecordsBySource(fileId, sheet, row));
+    }
+
     @PostMapping
     public ResponseEntity<VehicleRecord> createRecord(@RequestBody VehicleRecord record) {
         return ResponseEntity.ok(vehicleService.saveRecord(record));
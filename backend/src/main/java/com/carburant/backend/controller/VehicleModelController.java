@@ -0,0 +1,83 @@
+package com.carburant.backend.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.carburant.backend.model.VehicleModel;
+import com.carburant.backend.model.VehicleModelReport;
+import com.carburant.backend.service.VehicleModelService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controller for the per-vehicle reference models and their drift ranking
+ */
+@Slf4j
+@RestController
+@RequestMapping("/vehicle-models")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class VehicleModelController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final VehicleModelService vehicleModelService;
+
+    /**
+     * Refit the models of every vehicle with enough months
+     *
+     * @param vehicleType Only refit the vehicles of this type (optional)
+     * @return Vehicles fitted and the time spent in each phase
+     */
+    @PostMapping("/fit")
+    public ResponseEntity<?> fitModels(@RequestParam(required = false) String vehicleType) {
+        log.info("Fitting vehicle models (type: {})", vehicleType != null ? vehicleType : "all");
+        VehicleModelReport report = vehicleModelService.fitAll(vehicleType);
+        if (report == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Vehicle model fitting is already running"));
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Get the vehicles that drift most from their own baseline
+     */
+    @GetMapping("/drift")
+    public ResponseEntity<?> getDriftRanking(
+            @RequestParam(required = false) String vehicleType,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and " + MAX_LIMIT));
+        }
+        try {
+            List<VehicleModel> ranking = vehicleModelService.rankByDrift(vehicleType, region, limit);
+            return ResponseEntity.ok(ranking);
+        } catch (Exception e) {
+            log.error("Error ranking vehicles by drift", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Get the model of one vehicle
+     */
+    @GetMapping("/{vehicleType}/{matricule}")
+    public ResponseEntity<VehicleModel> getModel(@PathVariable String vehicleType, @PathVariable String matricule) {
+        return vehicleModelService.getModel(vehicleType, matricule)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
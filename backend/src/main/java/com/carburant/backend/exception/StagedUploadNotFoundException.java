@@ -0,0 +1,11 @@
+package com.carburant.backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class StagedUploadNotFoundException extends RuntimeException {
+    public StagedUploadNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,122 @@
+package com.carburant.backend.migration;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collections and indexes of a new database. Indexes added later belong in a new
+ * migration, since this one only runs once per database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CollectionsAndIndexesMigration implements Migration {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public String description() {
+        return "Create collections and indexes";
+    }
+
+    @Override
+    public void migrate() {
+        createCollectionsIfNotExist();
+        createIndexes();
+    }
+
+    private void createCollectionsIfNotExist() {
+        List<String> collections = Arrays.asList("vehicle_data", "regression_results", "files");
+        
+        collections.forEach(collection -> {
+            if (!mongoTemplate.collectionExists(collection)) {
+                mongoTemplate.createCollection(collection);
+                log.info("Created collection: {}", collection);
+            } else {
+                log.debug("Collection already exists: {}", collection);
+            }
+        });
+    }
+
+    private void createIndexes() {
+        // Indexes for vehicle_data
+        createIndexIfNotExists("vehicle_data", "type_asc", "type");
+        createIndexIfNotExists("vehicle_data", "matricule_asc", "matricule");
+        createIndexIfNotExists("vehicle_data", "year_asc", "year");
+        createIndexIfNotExists("vehicle_data", "mois_asc", "mois");
+        createIndexIfNotExists("vehicle_data", "region_asc", "region");
+        // Provenance lookup: source file row -> record
+        createIndexIfNotExists("vehicle_data", "source_file_sheet_row", "sourceFileId", "sourceSheet", "sourceRow");
+
+        // Indexes for regression_results
+        createIndexIfNotExists("regression_results", "type_asc", "type");
+
+        // Indexes for vehicle_models (drift ranking)
+        createIndexIfNotExists("vehicle_models", "vehicleType_driftMagnitude", "vehicleType", "driftMagnitude");
+        createIndexIfNotExists("vehicle_models", "driftMagnitude_asc", "driftMagnitude");
+
+        // Indexes for files
+        createIndexIfNotExists("files", "vehicleType_asc", "vehicleType");
+        createIndexIfNotExists("files", "year_asc", "year");
+
+        // Content-hash lookup for GridFS upload dedupe
+        createIndexIfNotExists("fs.files", "metadata_sha256_asc", "metadata.sha256");
+        
+        log.info("All indexes verified/created successfully");
+    }
+
+    private void createIndexIfNotExists(String collectionName, String indexName, String... fields) {
+        createIndexIfNotExists(mongoTemplate, collectionName, indexName, fields);
+    }
+
+    /**
+     * Create an ascending index unless one with the same name or the same key pattern exists.
+     * Only an exact key pattern counts: a compound index does not serve sorts on its second field.
+     */
+    static void createIndexIfNotExists(MongoTemplate mongoTemplate, String collectionName, String indexName,
+            String... fields) {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(collectionName);
+            List<IndexInfo> indexInfoList = indexOps.getIndexInfo();
+            List<String> keys = Arrays.asList(fields);
+            
+            // Check if index already exists
+            boolean indexExists = indexInfoList.stream()
+                .anyMatch(indexInfo -> 
+                    indexInfo.getName() != null && 
+                    (indexInfo.getName().equals(indexName) || 
+                     indexInfo.getIndexFields().stream().map(IndexField::getKey).toList().equals(keys))
+                );
+
+            if (!indexExists) {
+                Index index = new Index();
+                for (String field : fields) {
+                    index.on(field, org.springframework.data.domain.Sort.Direction.ASC);
+                }
+                index.named(indexName);
+                indexOps.ensureIndex(index);
+                log.info("Created index {} on collection {}", indexName, collectionName);
+            } else {
+                log.debug("Index {} already exists on collection {}", indexName, collectionName);
+            }
+        } catch (Exception e) {
+            log.error("Error creating index {} on collection {}: {}", indexName, collectionName, e.getMessage());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.carburant.backend.migration;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.carburant.backend.service.ContentReferenceService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Counts the file documents referencing each GridFS file into its metadata.refCount,
+ * for content stored before uploads and retention kept the count up to date
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentReferenceCountMigration implements Migration {
+
+    private static final String REF_COUNT_FIELD = "metadata." + ContentReferenceService.REF_COUNT;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public int version() {
+        return 5;
+    }
+
+    @Override
+    public String description() {
+        return "Count the references to GridFS content";
+    }
+
+    @Override
+    public void migrate() {
+        Aggregation references = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("contentId").ne(null)),
+            Aggregation.group("contentId").count().as("count"));
+        for (Document reference : mongoTemplate.aggregate(references, "files", Document.class)) {
+            String contentId = reference.getString("_id");
+            if (ObjectId.isValid(contentId)) {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(contentId))),
+                    Update.update(REF_COUNT_FIELD, reference.get("count")), "fs.files");
+            }
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where(REF_COUNT_FIELD).exists(false)),
+            Update.update(REF_COUNT_FIELD, 0), "fs.files");
+    }
+}
@@ -0,0 +1,34 @@
+package com.carburant.backend.migration;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Single-field drift index for the drift ranking across vehicle types. Migration 1 took
+ * the compound vehicleType_driftMagnitude index for it and skipped it on databases
+ * where it had already run.
+ */
+@Component
+@RequiredArgsConstructor
+public class DriftIndexMigration implements Migration {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public int version() {
+        return 4;
+    }
+
+    @Override
+    public String description() {
+        return "Create the vehicle_models driftMagnitude index";
+    }
+
+    @Override
+    public void migrate() {
+        CollectionsAndIndexesMigration.createIndexIfNotExists(mongoTemplate, "vehicle_models", "driftMagnitude_asc",
+            "driftMagnitude");
+    }
+}
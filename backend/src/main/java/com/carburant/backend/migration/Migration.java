@@ -0,0 +1,15 @@
+package com.carburant.backend.migration;
+
+/**
+ * A versioned, once-only change to the stored data, run by {@link MigrationRunner}
+ * after the application is ready. Migrations run in version order; a released version
+ * must not change, so later changes (a new index, a new document shape) get a new one.
+ */
+public interface Migration {
+
+    int version();
+
+    String description();
+
+    void migrate();
+}
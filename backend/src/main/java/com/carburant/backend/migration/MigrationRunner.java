@@ -0,0 +1,206 @@
+package com.carburant.backend.migration;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.carburant.backend.model.SchemaMigration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the pending {@link Migration}s once the application is ready, so startup does
+ * not wait on collection probes or rewrites of stored documents. Each run is recorded
+ * in schema_migrations; applied versions are skipped on later startups.
+ *
+ * Migrations run in the background by default (app.migrations.async); a failure stops
+ * the remaining migrations, which are retried with it on the next startup.
+ *
+ * Several instances may start together, so each version is claimed in the database
+ * before it runs: a RUNNING record is inserted (the version is the _id, so only one
+ * insert succeeds) or a FAILED one is switched to RUNNING with a conditional update.
+ * A RUNNING record older than app.migrations.lease was left by an instance that
+ * stopped mid-run and can be claimed again. An instance that cannot claim a version
+ * stops there; the one holding it runs the rest.
+ */
+@Slf4j
+@Component
+public class MigrationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final List<Migration> migrations;
+    private final boolean enabled;
+    private final boolean async;
+    private final Duration lease;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MigrationRunner(
+            MongoTemplate mongoTemplate,
+            List<Migration> migrations,
+            @Value("${app.migrations.enabled:true}") boolean enabled,
+            @Value("${app.migrations.async:true}") boolean async,
+            @Value("${app.migrations.lease:PT1H}") Duration lease) {
+        this.mongoTemplate = mongoTemplate;
+        this.migrations = migrations.stream().sorted(Comparator.comparingInt(Migration::version)).toList();
+        this.enabled = enabled;
+        this.async = async;
+        this.lease = lease;
+        Set<Integer> versions = migrations.stream().map(Migration::version).collect(Collectors.toSet());
+        if (versions.size() != migrations.size()) {
+            throw new IllegalStateException("Duplicate migration versions: " + migrations.stream()
+                .map(migration -> migration.version() + " " + migration.getClass().getSimpleName()).toList());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Startup migrations are disabled");
+            return;
+        }
+        if (async) {
+            new SimpleAsyncTaskExecutor("migrations-").execute(this::runPending);
+        } else {
+            runPending();
+        }
+    }
+
+    /**
+     * Run the migrations not yet applied, in version order
+     *
+     * @return The number of migrations applied, or -1 if a run is already in progress
+     */
+    public int runPending() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            Set<Integer> applied = mongoTemplate.find(
+                    Query.query(Criteria.where("status").is(SchemaMigration.Status.APPLIED)), SchemaMigration.class)
+                .stream()
+                .map(SchemaMigration::getVersion)
+                .collect(Collectors.toSet());
+            String owner = UUID.randomUUID().toString();
+            long start = System.nanoTime();
+            int count = 0;
+            for (Migration migration : migrations) {
+                if (applied.contains(migration.version())) {
+                    continue;
+                }
+                if (!claim(migration, owner)) {
+                    SchemaMigration current = mongoTemplate.findById(migration.version(), SchemaMigration.class);
+                    if (current != null && current.getStatus() == SchemaMigration.Status.APPLIED) {
+                        // Applied by another instance since the history was read
+                        continue;
+                    }
+                    log.info("Migration {} ({}) is claimed by another instance, leaving the remaining "
+                        + "migrations to it", migration.version(), migration.description());
+                    break;
+                }
+                if (!apply(migration, owner)) {
+                    break;
+                }
+                count++;
+            }
+            if (count > 0) {
+                log.info("Applied {} startup migrations in {} ms", count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return count;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public List<SchemaMigration> getHistory() {
+        return mongoTemplate.find(new Query().with(Sort.by("_id")), SchemaMigration.class);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Claim a version for this run: insert its RUNNING record, or take over a FAILED
+     * record or a RUNNING one whose lease has expired
+     *
+     * @return false if the version is applied or held by another run
+     */
+    private boolean claim(Migration migration, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        SchemaMigration record = new SchemaMigration();
+        record.setVersion(migration.version());
+        record.setDescription(migration.description());
+        record.setStatus(SchemaMigration.Status.RUNNING);
+        record.setOwner(owner);
+        record.setStartedAt(now);
+        try {
+            mongoTemplate.insert(record);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // A record exists: claimable only if it failed or its run was abandoned
+        }
+        Query claimable = Query.query(Criteria.where("_id").is(migration.version()).orOperator(
+            Criteria.where("status").is(SchemaMigration.Status.FAILED),
+            Criteria.where("status").is(SchemaMigration.Status.RUNNING).and("startedAt").lt(now.minus(lease))));
+        Update update = new Update()
+            .set("description", migration.description())
+            .set("status", SchemaMigration.Status.RUNNING)
+            .set("owner", owner)
+            .set("startedAt", now)
+            .unset("finishedAt")
+            .unset("error");
+        return mongoTemplate.findAndModify(claimable, update, FindAndModifyOptions.options().returnNew(true),
+            SchemaMigration.class) != null;
+    }
+
+    private boolean apply(Migration migration, String owner) {
+        long start = System.nanoTime();
+        SchemaMigration.Status status;
+        String error = null;
+        try {
+            migration.migrate();
+            status = SchemaMigration.Status.APPLIED;
+        } catch (Exception e) {
+            log.error("Migration {} ({}) failed", migration.version(), migration.description(), e);
+            status = SchemaMigration.Status.FAILED;
+            error = e.getMessage();
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Update update = new Update()
+            .set("status", status)
+            .set("finishedAt", LocalDateTime.now())
+            .set("durationMillis", durationMillis)
+            .set("error", error);
+        long matched = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(migration.version()).and("owner").is(owner)),
+                update, SchemaMigration.class)
+            .getMatchedCount();
+        if (matched == 0) {
+            log.warn("Migration {} ({}) outlived its lease and was claimed again; its result is not recorded",
+                migration.version(), migration.description());
+        }
+        log.info("Migration {} ({}): {} in {} ms", migration.version(), migration.description(), status,
+            durationMillis);
+        return status == SchemaMigration.Status.APPLIED;
+    }
+}
@@ -0,0 +1,34 @@
+package com.carburant.backend.migration;
+
+import org.springframework.stereotype.Component;
+
+import com.carburant.backend.service.RegressionService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Moves the arrays of regression results saved before regression_diagnostics existed
+ * out of regression_results. Runs before any rewrite of the results, which would
+ * otherwise drop the arrays.
+ */
+@Component
+@RequiredArgsConstructor
+public class RegressionDiagnosticsMigration implements Migration {
+
+    private final RegressionService regressionService;
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public String description() {
+        return "Move regression diagnostics to regression_diagnostics";
+    }
+
+    @Override
+    public void migrate() {
+        regressionService.splitLegacyDiagnostics();
+    }
+}
@@ -0,0 +1,32 @@
+package com.carburant.backend.migration;
+
+import org.springframework.stereotype.Component;
+
+import com.carburant.backend.service.RegressionService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Rewrites stored SER equations in the current display format
+ */
+@Component
+@RequiredArgsConstructor
+public class RegressionEquationFormatMigration implements Migration {
+
+    private final RegressionService regressionService;
+
+    @Override
+    public int version() {
+        return 3;
+    }
+
+    @Override
+    public String description() {
+        return "Rewrite regression equations in the current format";
+    }
+
+    @Override
+    public void migrate() {
+        regressionService.updateExistingEquations();
+    }
+}
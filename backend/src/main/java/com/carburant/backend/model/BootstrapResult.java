@@ -0,0 +1,45 @@
+package com.carburant.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bootstrap percentile intervals of the SER coefficients, next to the t-based
+ * intervals of the ordinary fit.
+ */
+@Data
+@NoArgsConstructor
+public class BootstrapResult {
+
+    private String vehicleType;
+    private String year;
+    private String region;
+    private String model;                   // VOITURE or CAMION
+    private int observations;               // monthly points resampled
+    private double confidence;
+    private long seed;
+    private int resamplesRequested;
+    private int resamples;                  // resamples refitted within the time budget
+    private int degenerateResamples;        // resamples with singular data, left out
+    private boolean budgetExceeded;         // true when the time budget stopped the run early
+    private int parallelism;
+    private long millis;
+    private List<Interval> coefficients = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Interval {
+        private String name;                // intercept, kilometrage, tonnage
+        private double estimate;            // coefficient of the fit on the original data
+        private double lower;               // bootstrap percentile bounds
+        private double upper;
+        private double standardError;       // standard deviation of the bootstrap estimates
+        private double tLower;              // t-based bounds of the ordinary fit
+        private double tUpper;
+    }
+}
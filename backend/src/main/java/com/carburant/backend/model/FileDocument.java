@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -16,6 +17,7 @@ import lombok.NoArgsConstructor;
  * MongoDB document representing an uploaded file.
  */
 @Document(collection = "files")
+@CompoundIndex(name = "active_uploadDate", def = "{'active': 1, 'uploadDate': -1}")
 @Data
 @Builder
 @NoArgsConstructor
@@ -34,7 +36,10 @@ public class FileDocument {
     
     private long size;
     
-    private byte[] content;
+    private String contentId;        // GridFS file id of the content (null for legacy inline content)
+    
+    @Indexed
+    private String contentHash;      // SHA-256 of the content, shared by identical uploads
     
     private LocalDateTime uploadDate;
     
@@ -57,4 +62,8 @@ public class FileDocument {
     
     @Builder.Default
     private boolean active = true;
+    
+    private LocalDateTime deletedAt;      // when the file was soft-deleted
+    
+    private LocalDateTime archivedAt;     // when the retention job dropped the content of a deleted file
 }
\ No newline at end of file
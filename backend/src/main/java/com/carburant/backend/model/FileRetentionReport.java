@@ -0,0 +1,29 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * Outcome of a file retention run: files purged or archived and the bytes reclaimed
+ * in the files collection and in GridFS.
+ */
+@Data
+public class FileRetentionReport {
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+    private String mode;
+    private LocalDateTime cutoff;           // files deleted before this date are eligible
+    private int batches;
+    private long filesProcessed;
+    private long filesFailed;
+    private long gridFsFilesDeleted;
+    private long filesBytesReclaimed;       // inline content and documents removed from the files collection
+    private long gridFsBytesReclaimed;      // GridFS content no longer referenced by any file
+    private boolean complete;               // false when the run stopped at the batch limit
+
+    public long getTotalBytesReclaimed() {
+        return filesBytesReclaimed + gridFsBytesReclaimed;
+    }
+}
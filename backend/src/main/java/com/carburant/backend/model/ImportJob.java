@@ -0,0 +1,120 @@
+package com.carburant.backend.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.carburant.backend.model.dto.ImportDiffResult;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+
+/**
+ * In-memory state of an asynchronous upload import.
+ *
+ * The worker thread updates the phase and counters while HTTP threads read them
+ * for status polling, so every mutable field is volatile or atomic.
+ */
+@Getter
+public class ImportJob {
+
+    public enum Phase {
+        QUEUED, PARSING, STORING_FILE, WRITING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String filename;
+    private final String sheetName;
+    private final String vehicleType;
+    private final String year;
+    private final String month;
+    private final String region;
+    private final boolean replaceExisting;
+    private final boolean incremental;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private volatile Phase phase = Phase.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long recordsExtracted;
+    private volatile String fileId;
+    private volatile String error;
+    private volatile ImportDiffResult diff;    // set when an incremental import completes
+
+    @JsonIgnore
+    private volatile long writeStartedNanos;
+    @JsonIgnore
+    private volatile long writeFinishedNanos;
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    public ImportJob(String filename, String sheetName, String vehicleType, String year,
+                     String month, String region, boolean replaceExisting, boolean incremental) {
+        this.filename = filename;
+        this.sheetName = sheetName;
+        this.vehicleType = vehicleType;
+        this.year = year;
+        this.month = month;
+        this.region = region;
+        this.replaceExisting = replaceExisting;
+        this.incremental = incremental;
+    }
+
+    public void start() {
+        this.startedAt = LocalDateTime.now();
+        this.phase = Phase.PARSING;
+    }
+
+    public void storingFile(long recordsExtracted) {
+        this.recordsExtracted = recordsExtracted;
+        this.phase = Phase.STORING_FILE;
+    }
+
+    public void writing(String fileId) {
+        this.fileId = fileId;
+        this.writeStartedNanos = System.nanoTime();
+        this.phase = Phase.WRITING;
+    }
+
+    public void rowParsed(int rowsRead) {
+        rowsParsed.set(rowsRead);
+    }
+
+    public void rowWritten() {
+        rowsWritten.incrementAndGet();
+    }
+
+    public void diffCompleted(ImportDiffResult diff) {
+        this.diff = diff;
+    }
+
+    public void complete() {
+        this.writeFinishedNanos = System.nanoTime();
+        this.finishedAt = LocalDateTime.now();
+        this.phase = Phase.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.phase = Phase.FAILED;
+    }
+
+    public boolean isFinished() {
+        return phase == Phase.COMPLETED || phase == Phase.FAILED;
+    }
+
+    /**
+     * Rows written per second since the write phase started
+     */
+    public double getThroughputRowsPerSecond() {
+        if (writeStartedNanos == 0) {
+            return 0.0;
+        }
+        long end = writeFinishedNanos != 0 ? writeFinishedNanos : System.nanoTime();
+        double seconds = Duration.ofNanos(end - writeStartedNanos).toMillis() / 1000.0;
+        return seconds > 0 ? rowsWritten.get() / seconds : 0.0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Model form chosen for a (vehicle type, year, region) scope by k-fold cross-validation,
+ * with the metrics of every candidate form.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "model_selections")
+public class ModelSelection {
+
+    @Id
+    private String id;                  // vehicleType|year|region, "*" for all regions
+    private String vehicleType;
+    private String year;
+    private String region;
+    private int observations;           // monthly points used by every candidate
+    private int folds;
+    private long seed;
+    private String rule;                // how the candidate was chosen among the best ones
+    private String selected;            // name of the chosen candidate
+    private String regressionEquation;
+    private double intercept;
+    private RegressionCoefficients coefficients;
+    private List<Candidate> candidates = new ArrayList<>();
+    private long millis;
+    private LocalDateTime selectedAt;
+
+    public static String key(String vehicleType, String year, String region) {
+        return vehicleType + "|" + year + "|" + (region != null ? region : RegressionStatistics.ALL_REGIONS);
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Candidate {
+        private String name;            // km, km_tonnage, km_tonnage_interaction
+        private List<String> features;
+        private double cvRmse;          // root mean squared error of the held-out predictions
+        private double cvRmseStandardError; // standard error of the per-fold RMSE
+        private double cvMae;
+        private double rSquared;        // fit on all points
+        private double adjustedRSquared;
+        private double intercept;
+        private RegressionCoefficients coefficients;
+        private double millis;          // cross-validation and final fit
+        private String error;           // set when the candidate cannot be fitted
+    }
+}
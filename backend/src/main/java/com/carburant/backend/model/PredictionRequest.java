@@ -0,0 +1,20 @@
+package com.carburant.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What-if scenarios to evaluate with a stored SER equation. The equation is given by
+ * its id, or looked up by vehicle type, year and region with the usual SER year fallback.
+ */
+@Data
+@NoArgsConstructor
+public class PredictionRequest {
+
+    private String equationId;
+    private String vehicleType;
+    private String year;
+    private String region;
+    private double[] kilometrage;           // one value per scenario
+    private double[] tonnage;               // tons per scenario; required for CAMION equations, ignored otherwise
+}
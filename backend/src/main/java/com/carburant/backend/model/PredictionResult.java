@@ -0,0 +1,25 @@
+package com.carburant.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Predicted consumption and IPE of each what-if scenario, in the order of the request.
+ * IPE values are 0 for scenarios without kilometrage (or without tonnage, per ton).
+ */
+@Data
+@NoArgsConstructor
+public class PredictionResult {
+
+    private String equationId;
+    private String vehicleType;
+    private String year;                    // year of the equation used, after fallback
+    private String region;
+    private String model;                   // VOITURE or CAMION
+    private String regressionEquation;
+    private int scenarios;
+    private double[] consommation;          // predicted consumption (L)
+    private double[] ipeL100km;             // predicted consumption per 100 km
+    private double[] ipeL100TonneKm;        // per 100 km and ton, CAMION only
+    private long micros;
+}
@@ -0,0 +1,51 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a batch regression run: the combinations fitted, the time spent in each
+ * phase and the time taken by every fit.
+ */
+@Data
+public class RegressionBatchReport {
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+    private int parallelism;
+    private int combinations;
+    private int fitted;
+    private int failed;
+    private int skipped;                    // vehicle types without an SER model
+    private long resultsWritten;
+    private long aggregationMillis;         // one pass over vehicle_data
+    private long fitMillis;                 // wall time of the parallel fits
+    private long writeMillis;               // bulk write of regression_results
+    private List<FitTiming> fits = new ArrayList<>();
+
+    /**
+     * Total CPU time of the fits; compared with fitMillis it shows the parallel speed-up
+     */
+    public double getFitCpuMillis() {
+        return fits.stream().mapToDouble(FitTiming::getMillis).sum();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FitTiming {
+        private String vehicleType;
+        private String year;
+        private String region;
+        private String model;               // VOITURE or CAMION, null when skipped
+        private int months;
+        private double millis;
+        private String status;              // fitted, failed or skipped
+        private String error;
+    }
+}
@@ -12,4 +12,5 @@ import lombok.NoArgsConstructor;
 public class RegressionCoefficients {
     private double kilometrage;
     private double tonnage;
+    private double interaction;     // kilométrage × tonnage, only in models chosen by model selection
 }
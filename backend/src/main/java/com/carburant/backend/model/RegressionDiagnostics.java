@@ -0,0 +1,70 @@
+package com.carburant.backend.model;
+
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Detailed output of a regression: coefficient statistics, residuals and predicted
+ * values. Kept apart from the compact equation in regression_results, under the same
+ * id, so equation lookups do not read arrays they never use.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "regression_diagnostics")
+public class RegressionDiagnostics {
+
+    // Fields moved out of regression_results; documents written before the split still hold them
+    public static final List<String> FIELDS = List.of("varianceInflationFactors", "standardErrors", "tStats", "pValues",
+        "lowerConfidence", "upperConfidence", "predictedValues", "residuals");
+
+    @Id
+    private String id;                  // id of the regression result
+    private double[] varianceInflationFactors;
+    private double[] standardErrors;
+    private double[] tStats;
+    private double[] pValues;
+    private double[] lowerConfidence;
+    private double[] upperConfidence;
+    private double[] predictedValues;
+    private double[] residuals;
+
+    public static RegressionDiagnostics of(RegressionResult result) {
+        RegressionDiagnostics diagnostics = new RegressionDiagnostics();
+        diagnostics.setId(result.getId());
+        diagnostics.setVarianceInflationFactors(result.getVarianceInflationFactors());
+        diagnostics.setStandardErrors(result.getStandardErrors());
+        diagnostics.setTStats(result.getTStats());
+        diagnostics.setPValues(result.getPValues());
+        diagnostics.setLowerConfidence(result.getLowerConfidence());
+        diagnostics.setUpperConfidence(result.getUpperConfidence());
+        diagnostics.setPredictedValues(result.getPredictedValues());
+        diagnostics.setResiduals(result.getResiduals());
+        return diagnostics;
+    }
+
+    /**
+     * Copy of a result with these diagnostics, leaving the (possibly cached) result untouched
+     */
+    public RegressionResult applyTo(RegressionResult result) {
+        return result.toBuilder()
+            .varianceInflationFactors(varianceInflationFactors)
+            .standardErrors(standardErrors)
+            .tStats(tStats)
+            .pValues(pValues)
+            .lowerConfidence(lowerConfidence)
+            .upperConfidence(upperConfidence)
+            .predictedValues(predictedValues)
+            .residuals(residuals)
+            .build();
+    }
+
+    public boolean isEmpty() {
+        return varianceInflationFactors == null && standardErrors == null && tStats == null && pValues == null
+            && lowerConfidence == null && upperConfidence == null && predictedValues == null && residuals == null;
+    }
+}
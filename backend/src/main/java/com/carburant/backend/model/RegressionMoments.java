@@ -0,0 +1,128 @@
+package com.carburant.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sufficient statistics of a regression y ~ x1 + x2: the observation count, the means
+ * and the centered co-moments (sums of products of deviations from the means).
+ *
+ * Observations are added and removed with Welford updates and partial statistics are
+ * combined with Chan's formula, all in O(1) and without the cancellation of raw
+ * power sums. Single-predictor models leave x2 at 0.
+ */
+@Data
+@NoArgsConstructor
+public class RegressionMoments {
+
+    private long n;
+    private double meanX1;
+    private double meanX2;
+    private double meanY;
+    private double c11;     // Σ(x1 - mean)²
+    private double c12;     // Σ(x1 - mean)(x2 - mean)
+    private double c22;     // Σ(x2 - mean)²
+    private double c1y;     // Σ(x1 - mean)(y - mean)
+    private double c2y;     // Σ(x2 - mean)(y - mean)
+    private double cyy;     // Σ(y - mean)²
+
+    public void add(double x1, double x2, double y) {
+        n++;
+        double d1 = x1 - meanX1;
+        double d2 = x2 - meanX2;
+        double dy = y - meanY;
+        meanX1 += d1 / n;
+        meanX2 += d2 / n;
+        meanY += dy / n;
+        double e1 = x1 - meanX1;
+        double e2 = x2 - meanX2;
+        double ey = y - meanY;
+        c11 += d1 * e1;
+        c12 += d1 * e2;
+        c22 += d2 * e2;
+        c1y += d1 * ey;
+        c2y += d2 * ey;
+        cyy += dy * ey;
+    }
+
+    /**
+     * Remove an observation that was previously added
+     */
+    public void remove(double x1, double x2, double y) {
+        if (n <= 1) {
+            clear();
+            return;
+        }
+        // Inverse of add: the means without the observation, then the same products
+        double m1 = (n * meanX1 - x1) / (n - 1);
+        double m2 = (n * meanX2 - x2) / (n - 1);
+        double my = (n * meanY - y) / (n - 1);
+        double d1 = x1 - m1;
+        double d2 = x2 - m2;
+        double dy = y - my;
+        double e1 = x1 - meanX1;
+        double e2 = x2 - meanX2;
+        double ey = y - meanY;
+        c11 -= d1 * e1;
+        c12 -= d1 * e2;
+        c22 -= d2 * e2;
+        c1y -= d1 * ey;
+        c2y -= d2 * ey;
+        cyy -= dy * ey;
+        meanX1 = m1;
+        meanX2 = m2;
+        meanY = my;
+        n--;
+    }
+
+    /**
+     * Add the observations summarised by other statistics
+     */
+    public void merge(RegressionMoments other) {
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            copyFrom(other);
+            return;
+        }
+        long total = n + other.n;
+        double weight = (double) n * other.n / total;
+        double d1 = other.meanX1 - meanX1;
+        double d2 = other.meanX2 - meanX2;
+        double dy = other.meanY - meanY;
+        c11 += other.c11 + d1 * d1 * weight;
+        c12 += other.c12 + d1 * d2 * weight;
+        c22 += other.c22 + d2 * d2 * weight;
+        c1y += other.c1y + d1 * dy * weight;
+        c2y += other.c2y + d2 * dy * weight;
+        cyy += other.cyy + dy * dy * weight;
+        meanX1 += d1 * other.n / total;
+        meanX2 += d2 * other.n / total;
+        meanY += dy * other.n / total;
+        n = total;
+    }
+
+    public RegressionMoments copy() {
+        RegressionMoments copy = new RegressionMoments();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    public void clear() {
+        copyFrom(new RegressionMoments());
+    }
+
+    private void copyFrom(RegressionMoments other) {
+        n = other.n;
+        meanX1 = other.meanX1;
+        meanX2 = other.meanX2;
+        meanY = other.meanY;
+        c11 = other.c11;
+        c12 = other.c12;
+        c22 = other.c22;
+        c1y = other.c1y;
+        c2y = other.c2y;
+        cyy = other.cyy;
+    }
+}
@@ -3,6 +3,7 @@ package com.carburant.backend.model;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -11,7 +12,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "regression_results")
@@ -27,7 +28,8 @@ public class RegressionResult {
     private List<String> warnings;
     private boolean hasOutliers;
     private boolean hasMulticollinearity;
-    private double[] varianceInflationFactors; // For multicollinearity assessment
+    @Transient
+    private double[] varianceInflationFactors; // For multicollinearity assessment, in regression_diagnostics
     
     // Regression Statistics
     private double multipleR;        // Multiple R (correlation coefficient)
@@ -48,15 +50,23 @@ public class RegressionResult {
     private double fStatistic;       // F
     private double significanceF;    // Significance F
     
-    // Coefficient Statistics
+    // Coefficient Statistics and Residual Output: stored in regression_diagnostics
+    // (see RegressionDiagnostics) and only loaded when a caller asks for them
+    @Transient
     private double[] standardErrors; // Standard errors for each coefficient
+    @Transient
     private double[] tStats;        // t Statistics
+    @Transient
     private double[] pValues;       // P-values
+    @Transient
     private double[] lowerConfidence; // Lower 95% confidence intervals
+    @Transient
     private double[] upperConfidence; // Upper 95% confidence intervals
     
     // Residual Output
+    @Transient
     private double[] predictedValues;
+    @Transient
     private double[] residuals;
     
     // Additional fields
@@ -0,0 +1,126 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sufficient statistics of the SER regressions for one (vehicle type, year, region)
+ * scope, or for all regions of a type and year.
+ *
+ * Observations are monthly totals, as in the regression analysis: each saved or deleted
+ * record moves its month's totals, which removes the old month point from the moments
+ * and adds the new one.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "regression_statistics")
+public class RegressionStatistics {
+
+    public static final String ALL_REGIONS = "*";
+
+    @Id
+    private String id;                  // vehicleType|year|region
+    private String vehicleType;
+    private String year;
+    private String region;              // ALL_REGIONS for the all-regions scope
+    private List<MonthTotals> months = new ArrayList<>();
+    private RegressionMoments carModel = new RegressionMoments();    // every month: consommation ~ kilométrage
+    private RegressionMoments truckModel = new RegressionMoments();  // months with km and tonnage: consommation ~ kilométrage + tonnage/1000
+    private LocalDateTime updatedAt;
+
+    public RegressionStatistics(String vehicleType, String year, String region) {
+        this.id = key(vehicleType, year, region);
+        this.vehicleType = vehicleType;
+        this.year = year;
+        this.region = region == null ? ALL_REGIONS : region;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public static String key(String vehicleType, String year, String region) {
+        return vehicleType + '|' + year + '|' + (region == null ? ALL_REGIONS : region);
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) a record's contribution to its month
+     */
+    public void apply(String month, double kilometrage, double tonnage, double consommation, int sign) {
+        String monthKey = month == null ? "" : month;
+        MonthTotals totals = months.stream()
+            .filter(candidate -> candidate.getMonth().equals(monthKey))
+            .findFirst()
+            .orElse(null);
+        if (totals == null) {
+            if (sign < 0) {
+                return;
+            }
+            totals = new MonthTotals(monthKey, 0, 0.0, 0.0, 0.0);
+            months.add(totals);
+        }
+
+        exclude(totals);
+        totals.setRecords(totals.getRecords() + sign);
+        totals.setKilometrage(totals.getKilometrage() + sign * kilometrage);
+        totals.setTonnage(totals.getTonnage() + sign * tonnage);
+        totals.setConsommation(totals.getConsommation() + sign * consommation);
+        if (totals.getRecords() <= 0) {
+            months.remove(totals);
+        } else {
+            include(totals);
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Replace all months and recompute the moments from scratch
+     */
+    public void reset(List<MonthTotals> monthTotals) {
+        months = new ArrayList<>(monthTotals);
+        carModel = new RegressionMoments();
+        truckModel = new RegressionMoments();
+        months.forEach(this::include);
+        updatedAt = LocalDateTime.now();
+    }
+
+    private void include(MonthTotals totals) {
+        carModel.add(totals.getKilometrage(), 0.0, totals.getConsommation());
+        if (totals.isLoaded()) {
+            truckModel.add(totals.getKilometrage(), totals.getTonnage() / 1000.0, totals.getConsommation());
+        }
+    }
+
+    private void exclude(MonthTotals totals) {
+        if (totals.getRecords() <= 0) {
+            return;
+        }
+        carModel.remove(totals.getKilometrage(), 0.0, totals.getConsommation());
+        if (totals.isLoaded()) {
+            truckModel.remove(totals.getKilometrage(), totals.getTonnage() / 1000.0, totals.getConsommation());
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MonthTotals {
+        private String month;
+        private long records;
+        private double kilometrage;
+        private double tonnage;
+        private double consommation;
+
+        /**
+         * Whether the month is an observation of the truck model (positive distance and tonnage)
+         */
+        public boolean isLoaded() {
+            return kilometrage > 0 && tonnage > 0;
+        }
+    }
+}
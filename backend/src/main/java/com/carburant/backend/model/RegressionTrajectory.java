@@ -0,0 +1,42 @@
+package com.carburant.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * SER equation fitted over successive windows of monthly totals, one point per window,
+ * for charting how the coefficients move over time.
+ */
+@Data
+@NoArgsConstructor
+public class RegressionTrajectory {
+
+    private String vehicleType;
+    private String region;              // null for all regions
+    private String model;               // VOITURE or CAMION
+    private String mode;                // rolling or expanding
+    private int window;                 // months per window (rolling) or minimum months (expanding)
+    private int months;                 // monthly totals available
+    private int skippedWindows;         // too few points or singular data
+    private List<Point> points = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Point {
+        private int periodFrom;         // first month of the window, yyyymm
+        private int periodTo;           // last month of the window, yyyymm
+        private int observations;
+        private double intercept;
+        private double kilometrage;
+        private double tonnage;
+        private double kilometrageLower;    // 95% confidence interval
+        private double kilometrageUpper;
+        private double tonnageLower;
+        private double tonnageUpper;
+        private double rSquared;
+        private double standardError;
+    }
+}
@@ -0,0 +1,35 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Record of a startup migration run, in schema_migrations. A migration whose record
+ * is APPLIED is never run again; a FAILED one is retried on the next startup.
+ * The record is created RUNNING when an instance claims the version, so instances
+ * started together never run the same migration twice.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "schema_migrations")
+public class SchemaMigration {
+
+    public enum Status {
+        RUNNING, APPLIED, FAILED
+    }
+
+    @Id
+    private int version;
+    private String description;
+    private Status status;
+    private String owner;            // Run that claimed the version (see MigrationRunner)
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long durationMillis;
+    private String error;
+}
@@ -0,0 +1,77 @@
+package com.carburant.backend.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.core.io.InputStreamSource;
+
+import lombok.Getter;
+
+/**
+ * An uploaded Excel file staged between /upload, /extract and /save.
+ *
+ * Small files are kept in memory; larger ones are spilled to a temp file by
+ * the staging service. Each call to {@link #getInputStream()} opens a fresh stream.
+ */
+@Getter
+public class StagedUpload implements InputStreamSource {
+
+    private final String token;
+    private final String filename;
+    private final String contentType;
+    private final long size;
+    private final String contentHash;  // SHA-256 of the content
+    private final LocalDateTime stagedAt = LocalDateTime.now();
+
+    private volatile List<String> sheetNames = List.of();
+
+    private final byte[] content;      // null when spilled to disk
+    private final Path spillFile;      // null when kept in memory
+
+    private StagedUpload(String token, String filename, String contentType, long size, String contentHash,
+                         byte[] content, Path spillFile) {
+        this.token = token;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.content = content;
+        this.spillFile = spillFile;
+    }
+
+    public static StagedUpload inMemory(String token, String filename, String contentType, String contentHash,
+                                        byte[] content) {
+        return new StagedUpload(token, filename, contentType, content.length, contentHash, content, null);
+    }
+
+    public static StagedUpload onDisk(String token, String filename, String contentType, long size, String contentHash,
+                                      Path spillFile) {
+        return new StagedUpload(token, filename, contentType, size, contentHash, null, spillFile);
+    }
+
+    public boolean isInMemory() {
+        return content != null;
+    }
+
+    public void setSheetNames(List<String> sheetNames) {
+        this.sheetNames = List.copyOf(sheetNames);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        try {
+            return Files.newInputStream(spillFile);
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("Upload " + token + " has expired. Please upload the file again.");
+        }
+    }
+}
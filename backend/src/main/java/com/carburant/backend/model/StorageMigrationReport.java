@@ -0,0 +1,46 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Outcome of a storage-efficiency migration: bytes before and after for the
+ * documents (or GridFS chunks) that were rewritten, per collection.
+ */
+@Data
+public class StorageMigrationReport {
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+    private String rawValuesMode;
+    private boolean compressArchivedFiles;
+    private Map<String, CollectionSavings> collections = new LinkedHashMap<>();
+
+    public CollectionSavings collection(String name) {
+        return collections.computeIfAbsent(name, key -> new CollectionSavings());
+    }
+
+    public long getTotalBytesSaved() {
+        return collections.values().stream().mapToLong(CollectionSavings::getBytesSaved).sum();
+    }
+
+    @Data
+    public static class CollectionSavings {
+        private long documentsUpdated;
+        private long bytesBefore;
+        private long bytesAfter;
+
+        public void add(long before, long after) {
+            documentsUpdated++;
+            bytesBefore += before;
+            bytesAfter += after;
+        }
+
+        public long getBytesSaved() {
+            return bytesBefore - bytesAfter;
+        }
+    }
+}
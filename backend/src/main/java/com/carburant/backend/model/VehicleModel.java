@@ -0,0 +1,59 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reference consumption model of one vehicle, fitted on its own monthly history.
+ *
+ * Only the coefficients and a few fit statistics are kept (no residual arrays), so a
+ * fleet of thousands of vehicles stays small. The most recent months are left out of
+ * the fit and compared with its predictions to measure the drift of the vehicle away
+ * from its baseline.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "vehicle_models")
+public class VehicleModel {
+
+    @Id
+    private String id;                  // vehicleType|matricule
+    private String matricule;
+    private String vehicleType;
+    private String region;              // region of the latest month
+    private String model;               // VOITURE (consommation ~ km) or CAMION (consommation ~ km + tonnage/1000)
+    private double intercept;
+    private double kilometrage;
+    private double tonnage;
+    private int months;                 // baseline months used by the fit
+    private double rSquared;
+    private double standardError;
+    private int baselineFrom;           // periods as yyyymm
+    private int baselineTo;
+    private int recentMonths;           // months compared with the baseline
+    private int recentTo;
+    private double drift;               // recent consumption relative to the baseline prediction, 0.1 = 10% above
+    private double driftScore;          // mean recent residual in standard errors of the mean
+    private double driftMagnitude;      // |driftScore|, indexed for ranking
+    private LocalDateTime fittedAt;
+
+    public VehicleModel(String vehicleType, String matricule) {
+        this.id = vehicleType + "|" + matricule;
+        this.vehicleType = vehicleType;
+        this.matricule = matricule;
+    }
+
+    /**
+     * Predicted monthly consumption in L
+     *
+     * @param tonnageThousands Transported tonnage in thousands of tons (ignored by VOITURE models)
+     */
+    public double predict(double km, double tonnageThousands) {
+        return intercept + kilometrage * km + tonnage * tonnageThousands;
+    }
+}
@@ -0,0 +1,25 @@
+package com.carburant.backend.model;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * Outcome of a per-vehicle model run: vehicles fitted and the time spent in each phase.
+ */
+@Data
+public class VehicleModelReport {
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+    private String vehicleType;             // null when every type was refitted
+    private int parallelism;
+    private int vehicles;
+    private int fitted;
+    private int insufficient;               // not enough months for a baseline and a recent window
+    private int failed;                     // singular data, e.g. constant kilometrage
+    private long modelsRemoved;             // stale models of vehicles that were not refitted
+    private long aggregationMillis;
+    private long fitMillis;
+    private long writeMillis;
+}
@@ -1,18 +1,24 @@
 package com.carburant.backend.model;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.carburant.backend.utils.ContentHashUtils;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "vehicle_data")
@@ -35,6 +41,100 @@ public class VehicleRecord {
     private Double ipeSerL100km;      // IPE_SER in L/100km (reference value)
     private Double ipeSerL100TonneKm; // IPE_SER in L/100km·T (reference value for trucks)
     private Map<String, Double> rawValues;  // Raw values for any additional metrics
+    private Double ipeDirectValue;    // IPE read directly from the sheet (set when raw values are compacted)
+    private String sourceFileId;      // Stored file the record was imported from
+    private String sourceSheet;       // Sheet of the source workbook
+    private Integer sourceRow;        // 1-based row number in the source sheet, as shown by Excel
+    private String contentHash;       // Hash of the source row values (see computeContentHash)
+
+    /**
+     * Hash of the values read from the source row: matricule, the five input metrics
+     * and the IPE read directly from the sheet. Derived fields are left out, so the
+     * hash is the same before and after calculateIndices and raw-values compaction.
+     * Incremental imports compare it with the stored hash to skip unchanged rows.
+     */
+    public String computeContentHash() {
+        Double ipeDirect = rawValues != null && rawValues.containsKey("ipeDirectValue")
+            ? rawValues.get("ipeDirectValue")
+            : ipeDirectValue;
+        ByteBuffer metrics = ByteBuffer.allocate(6 * Double.BYTES)
+            .putDouble(consommationL)
+            .putDouble(consommationTEP)
+            .putDouble(coutDT)
+            .putDouble(kilometrage)
+            .putDouble(produitsTonnes)
+            .putDouble(ipeDirect != null ? ipeDirect : Double.NaN);
+        MessageDigest digest = ContentHashUtils.newSha256();
+        digest.update((matricule == null ? "" : matricule).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(metrics.array());
+        // 128 bits are plenty to tell rows apart and keep the stored hash short
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    /**
+     * Independent copy, including the raw values map
+     */
+    public VehicleRecord copy() {
+        return toBuilder()
+            .rawValues(rawValues != null ? new HashMap<>(rawValues) : null)
+            .build();
+    }
+
+    /**
+     * Compact the raw values: entries that repeat a typed field are removed and the
+     * directly read IPE moves to its own field. Values that differ from the typed
+     * fields (e.g. source TEP and cost, which calculateIndices recomputes) are kept.
+     *
+     * @return true if the record changed
+     */
+    public boolean compactRawValues() {
+        if (rawValues == null) {
+            return false;
+        }
+        Map<String, Double> residual = new HashMap<>(rawValues);
+        Double ipeDirect = residual.remove("ipeDirectValue");
+        if (ipeDirect != null) {
+            this.ipeDirectValue = ipeDirect;
+        }
+        residual.entrySet().removeIf(entry -> repeatsTypedField(entry.getKey(), entry.getValue()));
+        if (residual.size() == rawValues.size()) {
+            return false;
+        }
+        this.rawValues = residual.isEmpty() ? null : residual;
+        return true;
+    }
+
+    /**
+     * Drop the raw values, keeping the directly read IPE in its own field
+     *
+     * @return true if the record changed
+     */
+    public boolean dropRawValues() {
+        if (rawValues == null) {
+            return false;
+        }
+        Double ipeDirect = rawValues.get("ipeDirectValue");
+        if (ipeDirect != null) {
+            this.ipeDirectValue = ipeDirect;
+        }
+        this.rawValues = null;
+        return true;
+    }
+
+    private boolean repeatsTypedField(String key, Double value) {
+        if (value == null) {
+            return true;
+        }
+        return switch (key) {
+            case "consommationL" -> Double.compare(value, consommationL) == 0;
+            case "consommationTEP" -> Double.compare(value, consommationTEP) == 0;
+            case "coutDT" -> Double.compare(value, coutDT) == 0;
+            case "kilometrage" -> Double.compare(value, kilometrage) == 0;
+            case "produitsTonnes" -> Double.compare(value, produitsTonnes) == 0;
+            default -> false;
+        };
+    }
 
     public boolean isCamion() {
         return "CAMION".equalsIgnoreCase(type) || "CAMIONS".equalsIgnoreCase(type);
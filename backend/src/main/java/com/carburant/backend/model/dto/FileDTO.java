@@ -3,6 +3,8 @@ package com.carburant.backend.model.dto;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.annotation.PersistenceCreator;
+
 import com.carburant.backend.model.FileDocument;
 
 import lombok.AllArgsConstructor;
@@ -11,12 +13,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
- * Data Transfer Object for file information
+ * Data Transfer Object for file information.
+ * Also used as the projection type of file listing queries: the constructor
+ * arguments define the fields read from MongoDB.
  */
 @Data
 @Builder
 @NoArgsConstructor
-@AllArgsConstructor
+@AllArgsConstructor(onConstructor_ = @PersistenceCreator)
 public class FileDTO {
     
     private String id;
@@ -27,6 +31,7 @@ public class FileDTO {
     private LocalDateTime uploadDate;
     private int year;
     private String vehicleType;
+    private String region;
     private String sheetName;
     private boolean processed;
     private int recordCount;
@@ -49,6 +54,7 @@ public class FileDTO {
             .uploadDate(document.getUploadDate())
             .year(document.getYear())
             .vehicleType(document.getVehicleType())
+            .region(document.getRegion())
             .sheetName(document.getSheetName())
             .processed(document.isProcessed())
             .recordCount(document.getRecordCount())
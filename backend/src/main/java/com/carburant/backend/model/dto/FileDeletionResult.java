@@ -0,0 +1,19 @@
+package com.carburant.backend.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a file deletion and its cascade
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileDeletionResult {
+
+    private String fileId;
+    private long deletedRecords;
+    private long deletedNotifications;
+    private boolean transactional;    // whether the cascade ran in a MongoDB transaction
+}
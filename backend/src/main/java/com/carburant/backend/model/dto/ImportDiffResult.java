@@ -0,0 +1,47 @@
+package com.carburant.backend.model.dto;
+
+import lombok.Data;
+
+/**
+ * Outcome of an incremental (diff) import: rows compared by content hash against
+ * the records already stored for the same type, year, month and region
+ */
+@Data
+public class ImportDiffResult {
+
+    private int inserted;     // rows with no stored counterpart
+    private int updated;      // rows whose values changed
+    private int unchanged;    // rows whose values did not change
+    private int relocated;    // unchanged rows whose source file, sheet or row was updated
+    private long deleted;     // stored records no longer present in the sheet
+
+    public void recordInserted() {
+        inserted++;
+    }
+
+    public void recordUpdated() {
+        updated++;
+    }
+
+    public void recordUnchanged() {
+        unchanged++;
+    }
+
+    public void recordRelocated() {
+        relocated++;
+    }
+
+    /**
+     * Rows written to the database
+     */
+    public int getWritten() {
+        return inserted + updated;
+    }
+
+    /**
+     * Rows of the sheet now stored, written or not
+     */
+    public int getRecordCount() {
+        return inserted + updated + unchanged;
+    }
+}
@@ -1,61 +1,57 @@
 package com.carburant.backend.repository;
 
-import java.util.List;
-import java.util.Optional;
-
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.carburant.backend.model.FileDocument;
+import com.carburant.backend.model.dto.FileDTO;
 
 /**
- * MongoDB Repository for file operations
+ * MongoDB Repository for file operations.
+ * Listing queries return {@link FileDTO} projections, so only metadata fields are read.
  */
 @Repository
 public interface FileRepository extends MongoRepository<FileDocument, String> {
     
     /**
-     * Find files by vehicle type
-     */
-    List<FileDocument> findByVehicleTypeAndActiveTrue(String vehicleType);
-    
-    /**
-     * Find files by year
+     * Find metadata summaries of active files by vehicle type
      */
-    List<FileDocument> findByYearAndActiveTrue(int year);
+    Page<FileDTO> findSummariesByVehicleTypeAndActiveTrue(String vehicleType, Pageable pageable);
     
     /**
-     * Find files by both vehicle type and year
+     * Find metadata summaries of active files by year
      */
-    List<FileDocument> findByVehicleTypeAndYearAndActiveTrue(String vehicleType, int year);
+    Page<FileDTO> findSummariesByYearAndActiveTrue(int year, Pageable pageable);
     
     /**
-     * Find active files
+     * Find metadata summaries of active files by both vehicle type and year
      */
-    List<FileDocument> findByActiveTrue();
+    Page<FileDTO> findSummariesByVehicleTypeAndYearAndActiveTrue(String vehicleType, int year, Pageable pageable);
     
     /**
-     * Find file by ID and active status
+     * Find metadata summaries of active files
      */
-    Optional<FileDocument> findByIdAndActiveTrue(String id);
+    Page<FileDTO> findSummariesByActiveTrue(Pageable pageable);
     
     /**
-     * Find files by region
+     * Find metadata summaries of active files by region
      */
-    List<FileDocument> findByRegionAndActiveTrue(String region);
+    Page<FileDTO> findSummariesByRegionAndActiveTrue(String region, Pageable pageable);
     
     /**
-     * Find files by vehicle type and region
+     * Find metadata summaries of active files by vehicle type and region
      */
-    List<FileDocument> findByVehicleTypeAndRegionAndActiveTrue(String vehicleType, String region);
+    Page<FileDTO> findSummariesByVehicleTypeAndRegionAndActiveTrue(String vehicleType, String region, Pageable pageable);
     
     /**
-     * Find files by year and region
+     * Find metadata summaries of active files by year and region
      */
-    List<FileDocument> findByYearAndRegionAndActiveTrue(int year, String region);
+    Page<FileDTO> findSummariesByYearAndRegionAndActiveTrue(int year, String region, Pageable pageable);
     
     /**
-     * Find files by vehicle type, year, and region
+     * Find metadata summaries of active files by vehicle type, year, and region
      */
-    List<FileDocument> findByVehicleTypeAndYearAndRegionAndActiveTrue(String vehicleType, int year, String region);
-}
\ No newline at end of file
+    Page<FileDTO> findSummariesByVehicleTypeAndYearAndRegionAndActiveTrue(String vehicleType, int year, String region, Pageable pageable);
+}
@@ -13,12 +13,6 @@ public interface RegressionRepository extends MongoRepository<RegressionResult,
     Optional<RegressionResult> findByType(String type);
     List<RegressionResult> findAllByType(String type);
     
-    // Find by type and year
-    Optional<RegressionResult> findByTypeAndYear(String type, String year);
-    
-    // Find by type, year and region
-    Optional<RegressionResult> findByTypeAndYearAndRegion(String type, String year, String region);
-    
     // Find all by year
     List<RegressionResult> findAllByYear(String year);
     
@@ -3,7 +3,6 @@ package com.carburant.backend.repository;
 import java.util.List;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.carburant.backend.model.VehicleRecord;
@@ -52,8 +51,8 @@ public interface VehicleRepository extends MongoRepository<VehicleRecord, String
     List<VehicleRecord> findByYearAndRegion(String year, String region);
     List<VehicleRecord> findByTypeAndYearAndRegion(String type, String year, String region);
     List<VehicleRecord> findByTypeAndYearAndMoisAndRegion(String type, String year, String mois, String region);
-    
-    // Method to get distinct vehicle types from the database
-    @Query(value = "{}", fields = "{type: 1, _id: 0}")
-    List<String> findDistinctTypes();
+
+    // Provenance lookups (source_file_sheet_row index)
+    List<VehicleRecord> findBySourceFileIdAndSourceSheetOrderBySourceRowAsc(String sourceFileId, String sourceSheet);
+    List<VehicleRecord> findBySourceFileIdAndSourceSheetAndSourceRow(String sourceFileId, String sourceSheet, Integer sourceRow);
 }
\ No newline at end of file
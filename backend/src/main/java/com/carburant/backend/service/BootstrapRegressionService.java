@@ -0,0 +1,304 @@
+package com.carburant.backend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.distribution.TDistribution;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.BootstrapResult;
+import com.carburant.backend.model.MonthlyData;
+import com.carburant.backend.model.RegressionMoments;
+import com.carburant.backend.model.RegressionResult;
+import com.carburant.backend.utils.ClosedFormRegression;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bootstrap percentile intervals for the SER coefficients.
+ *
+ * The monthly points are resampled with replacement and refitted thousands of times.
+ * Resamples are split into tasks on the regression pool; each task draws from its own
+ * SplittableRandom, split from a seeded root, so a run is reproducible for a given seed
+ * and split. A refit accumulates the sums of the 2x2 normal equations over indices into
+ * the original arrays and solves them in place, without allocating. Tasks stop when the
+ * time budget is spent and the intervals are computed from the resamples done so far.
+ */
+@Slf4j
+@Service
+public class BootstrapRegressionService {
+
+    // Resamples between two checks of the time budget
+    private static final int BUDGET_CHECK_INTERVAL = 256;
+
+    private final RegressionStatisticsService regressionStatisticsService;
+    private final ForkJoinPool regressionPool;
+    private final int defaultResamples;
+    private final int maxResamples;
+    private final Duration defaultBudget;
+    private final Duration maxBudget;
+
+    public BootstrapRegressionService(
+            RegressionStatisticsService regressionStatisticsService,
+            @Qualifier("regressionPool") ForkJoinPool regressionPool,
+            @Value("${app.regression-bootstrap.resamples:5000}") int defaultResamples,
+            @Value("${app.regression-bootstrap.max-resamples:200000}") int maxResamples,
+            @Value("${app.regression-bootstrap.time-budget:2s}") Duration defaultBudget,
+            @Value("${app.regression-bootstrap.max-time-budget:30s}") Duration maxBudget) {
+        this.regressionStatisticsService = regressionStatisticsService;
+        this.regressionPool = regressionPool;
+        this.defaultResamples = defaultResamples;
+        this.maxResamples = maxResamples;
+        this.defaultBudget = defaultBudget;
+        this.maxBudget = maxBudget;
+    }
+
+    /**
+     * Bootstrap the SER coefficients of a scope
+     *
+     * @param region Region (optional, all regions when null)
+     * @param resamples Number of resamples (optional, app.regression-bootstrap.resamples)
+     * @param confidence Interval level, between 0.5 and 1 exclusive
+     * @param budget Time budget (optional, app.regression-bootstrap.time-budget)
+     * @param seed Seed of the root generator (optional, random)
+     * @throws IllegalArgumentException If the parameters are out of range, or there are too few points to fit
+     */
+    public BootstrapResult bootstrap(String vehicleType, String year, String region, Integer resamples,
+                                     double confidence, Duration budget, Long seed) {
+        int requested = resamples != null ? resamples : defaultResamples;
+        if (requested < 100 || requested > maxResamples) {
+            throw new IllegalArgumentException("resamples must be between 100 and " + maxResamples);
+        }
+        if (!(confidence > 0.5 && confidence < 1)) {
+            throw new IllegalArgumentException("confidence must be between 0.5 and 1");
+        }
+        Duration timeBudget = budget != null ? budget : defaultBudget;
+        if (timeBudget.isNegative() || timeBudget.isZero() || timeBudget.compareTo(maxBudget) > 0) {
+            throw new IllegalArgumentException("budget must be positive and at most " + maxBudget);
+        }
+
+        String model = RegressionStatisticsService.defaultModel(vehicleType);
+        boolean truck = ClosedFormRegression.TRUCK.equals(model);
+        Sample sample = Sample.of(regressionStatisticsService.monthlyData(vehicleType, year, region), truck);
+        // The ordinary fit validates the data (enough points, not singular) and gives the t-based intervals
+        RegressionResult fit = ClosedFormRegression.fit(sample.moments(), model);
+
+        long rootSeed = seed != null ? seed : new SplittableRandom().nextLong();
+        SplittableRandom root = new SplittableRandom(rootSeed);
+        int parallelism = regressionPool.getParallelism();
+        int taskCount = Math.min(requested, parallelism * 4);
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+
+        List<ForkJoinTask<Worker>> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int quota = requested / taskCount + (i < requested % taskCount ? 1 : 0);
+            Worker worker = new Worker(sample, truck, quota, root.split(), deadline);
+            tasks.add(regressionPool.submit(worker::run, worker));
+        }
+        List<Worker> workers = tasks.stream().map(ForkJoinTask::join).toList();
+
+        BootstrapResult result = new BootstrapResult();
+        result.setVehicleType(vehicleType);
+        result.setYear(year);
+        result.setRegion(region);
+        result.setModel(model);
+        result.setObservations(sample.size());
+        result.setConfidence(confidence);
+        result.setSeed(rootSeed);
+        result.setResamplesRequested(requested);
+        result.setParallelism(parallelism);
+        int done = workers.stream().mapToInt(Worker::getCompleted).sum();
+        result.setResamples(done);
+        result.setDegenerateResamples(workers.stream().mapToInt(Worker::getDegenerate).sum());
+        result.setBudgetExceeded(workers.stream().anyMatch(Worker::isStopped));
+        if (done == 0) {
+            throw new IllegalArgumentException("No resample could be fitted within the time budget");
+        }
+
+        TDistribution tDist = new TDistribution(fit.getDegreesOfFreedom());
+        double tCritical = tDist.inverseCumulativeProbability(0.5 + confidence / 2);
+        double[] estimates = truck
+            ? new double[] { fit.getIntercept(), fit.getCoefficients().getKilometrage(), fit.getCoefficients().getTonnage() }
+            : new double[] { fit.getIntercept(), fit.getCoefficients().getKilometrage() };
+        String[] names = { "intercept", "kilometrage", "tonnage" };
+        for (int c = 0; c < estimates.length; c++) {
+            double[] draws = new double[done];
+            int offset = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.getDraws()[c], 0, draws, offset, worker.getCompleted());
+                offset += worker.getCompleted();
+            }
+            Arrays.sort(draws);
+            double standardError = fit.getStandardErrors()[c];
+            result.getCoefficients().add(new BootstrapResult.Interval(names[c], estimates[c],
+                percentile(draws, (1 - confidence) / 2), percentile(draws, (1 + confidence) / 2), standardDeviation(draws),
+                estimates[c] - tCritical * standardError, estimates[c] + tCritical * standardError));
+        }
+        result.setMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Bootstrapped {} regression for type {} year {} region {}: {} of {} resamples in {} ms on {} threads",
+            model, vehicleType, year, region, done, requested, result.getMillis(), parallelism);
+        return result;
+    }
+
+    /**
+     * Percentile of sorted values, interpolated between the closest ranks
+     */
+    private static double percentile(double[] sorted, double p) {
+        double rank = p * (sorted.length - 1);
+        int below = (int) Math.floor(rank);
+        int above = Math.min(below + 1, sorted.length - 1);
+        return sorted[below] + (rank - below) * (sorted[above] - sorted[below]);
+    }
+
+    private static double standardDeviation(double[] values) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double mean = 0;
+        double m2 = 0;
+        for (int i = 0; i < values.length; i++) {
+            double delta = values[i] - mean;
+            mean += delta / (i + 1);
+            m2 += delta * (values[i] - mean);
+        }
+        return Math.sqrt(m2 / (values.length - 1));
+    }
+
+    /**
+     * Model points, centered on their means so the raw sums of a resample do not lose
+     * precision (kilometrage totals are in the hundreds of thousands)
+     */
+    private record Sample(double[] x1, double[] x2, double[] y, double meanX1, double meanX2, double meanY,
+                          RegressionMoments moments) {
+
+        static Sample of(List<MonthlyData> months, boolean truck) {
+            RegressionMoments moments = new RegressionMoments();
+            List<MonthlyData> points = months.stream()
+                .filter(month -> !truck || (month.getKilometrage() > 0 && month.getTonnage() > 0))
+                .toList();
+            for (MonthlyData month : points) {
+                moments.add(month.getKilometrage(), truck ? month.getTonnage() / 1000.0 : 0.0, month.getConsommation());
+            }
+            int n = points.size();
+            double[] x1 = new double[n];
+            double[] x2 = new double[n];
+            double[] y = new double[n];
+            for (int i = 0; i < n; i++) {
+                MonthlyData month = points.get(i);
+                x1[i] = month.getKilometrage() - moments.getMeanX1();
+                x2[i] = truck ? month.getTonnage() / 1000.0 - moments.getMeanX2() : 0.0;
+                y[i] = month.getConsommation() - moments.getMeanY();
+            }
+            return new Sample(x1, x2, y, moments.getMeanX1(), moments.getMeanX2(), moments.getMeanY(), moments);
+        }
+
+        int size() {
+            return y.length;
+        }
+    }
+
+    /**
+     * One task: a quota of resamples drawn from its own generator
+     */
+    private static final class Worker {
+        private final Sample sample;
+        private final boolean truck;
+        private final SplittableRandom random;
+        private final long deadline;
+        private final double[][] draws;
+        private int completed;
+        private int degenerate;
+        private boolean stopped;
+
+        Worker(Sample sample, boolean truck, int quota, SplittableRandom random, long deadline) {
+            this.sample = sample;
+            this.truck = truck;
+            this.random = random;
+            this.deadline = deadline;
+            this.draws = new double[truck ? 3 : 2][quota];
+        }
+
+        void run() {
+            double[] x1 = sample.x1();
+            double[] x2 = sample.x2();
+            double[] y = sample.y();
+            int n = y.length;
+            int quota = draws[0].length;
+            int attempts = 0;
+            while (completed < quota) {
+                if (++attempts % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                    stopped = true;
+                    return;
+                }
+                double s1 = 0, s2 = 0, sy = 0, s11 = 0, s12 = 0, s22 = 0, s1y = 0, s2y = 0;
+                for (int k = 0; k < n; k++) {
+                    int i = random.nextInt(n);
+                    s1 += x1[i];
+                    s2 += x2[i];
+                    sy += y[i];
+                    s11 += x1[i] * x1[i];
+                    s12 += x1[i] * x2[i];
+                    s22 += x2[i] * x2[i];
+                    s1y += x1[i] * y[i];
+                    s2y += x2[i] * y[i];
+                }
+                // Co-moments of the resample, then the normal equations
+                double c11 = s11 - s1 * s1 / n;
+                double c12 = s12 - s1 * s2 / n;
+                double c22 = s22 - s2 * s2 / n;
+                double c1y = s1y - s1 * sy / n;
+                double c2y = s2y - s2 * sy / n;
+                double b1;
+                double b2 = 0.0;
+                if (truck) {
+                    double det = c11 * c22 - c12 * c12;
+                    if (!(det > 1e-12 * c11 * c22)) {
+                        degenerate++;
+                        continue;
+                    }
+                    b1 = (c22 * c1y - c12 * c2y) / det;
+                    b2 = (c11 * c2y - c12 * c1y) / det;
+                } else {
+                    if (!(c11 > 1e-12 * s11)) {
+                        degenerate++;
+                        continue;
+                    }
+                    b1 = c1y / c11;
+                }
+                // Back to the original scale: only the intercept depends on the centering
+                double b0 = sample.meanY() + (sy - b1 * s1 - b2 * s2) / n - b1 * sample.meanX1() - b2 * sample.meanX2();
+                draws[0][completed] = b0;
+                draws[1][completed] = b1;
+                if (truck) {
+                    draws[2][completed] = b2;
+                }
+                completed++;
+            }
+        }
+
+        double[][] getDraws() {
+            return draws;
+        }
+
+        int getCompleted() {
+            return completed;
+        }
+
+        int getDegenerate() {
+            return degenerate;
+        }
+
+        boolean isStopped() {
+            return stopped;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.carburant.backend.service;
+
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reference counts of shared GridFS content.
+ *
+ * Identical uploads share one GridFS file, found by its SHA-256. Each file document
+ * that points at the content holds one reference, counted in metadata.refCount of
+ * the GridFS file. Both sides of the race between an upload adopting the content
+ * and a cleanup deleting it go through single-document updates of that GridFS file:
+ * an upload increments the count while the hash is still visible, and a cleanup
+ * only deletes content it has claimed, by hiding the hash of content whose count
+ * is zero. Content that has been claimed can no longer be adopted, and content that
+ * has been adopted can no longer be claimed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContentReferenceService {
+
+    public static final String REF_COUNT = "refCount";
+
+    private static final String GRIDFS_FILES_COLLECTION = "fs.files";
+    private static final String FILES_COLLECTION = "files";
+    private static final String GRIDFS_HASH_FIELD = "metadata.sha256";
+    private static final String GRIDFS_REF_COUNT_FIELD = "metadata." + REF_COUNT;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Take a reference on the content with this hash, if it is stored and not being deleted
+     *
+     * @return The GridFS file id of the content
+     */
+    public Optional<ObjectId> adopt(String hash) {
+        Query query = Query.query(Criteria.where(GRIDFS_HASH_FIELD).is(hash));
+        query.fields().include("_id");
+        Document adopted = mongoTemplate.findAndModify(query, new Update().inc(GRIDFS_REF_COUNT_FIELD, 1),
+            Document.class, GRIDFS_FILES_COLLECTION);
+        return Optional.ofNullable(adopted).map(document -> document.getObjectId("_id"));
+    }
+
+    /**
+     * Add references to content, e.g. for file documents switched over to it
+     */
+    public void add(ObjectId contentId, long references) {
+        if (references != 0) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(contentId)),
+                new Update().inc(GRIDFS_REF_COUNT_FIELD, references), GRIDFS_FILES_COLLECTION);
+        }
+    }
+
+    /**
+     * Drop references to content, once the file documents no longer point at it
+     */
+    public void release(ObjectId contentId, long references) {
+        add(contentId, -references);
+    }
+
+    /**
+     * Claim content without references for deletion. The content is hidden from hash
+     * lookups, so no upload can adopt it afterwards. As a safeguard against counts that
+     * are off (content stored before counting, an interrupted upload), the file
+     * documents are checked too: if any still points at the content, the count is
+     * corrected and the claim is given up.
+     *
+     * @return true if the content can be deleted
+     */
+    public boolean claimForDeletion(ObjectId contentId) {
+        Query unreferenced = Query.query(Criteria.where("_id").is(contentId).orOperator(
+            Criteria.where(GRIDFS_REF_COUNT_FIELD).lte(0),
+            Criteria.where(GRIDFS_REF_COUNT_FIELD).exists(false)));
+        Document claimed = mongoTemplate.findAndModify(unreferenced, new Update().unset(GRIDFS_HASH_FIELD),
+            FindAndModifyOptions.options().returnNew(false), Document.class, GRIDFS_FILES_COLLECTION);
+        if (claimed == null) {
+            return false;
+        }
+        long references = mongoTemplate.count(Query.query(Criteria.where("contentId").is(contentId.toHexString())),
+            FILES_COLLECTION);
+        if (references == 0) {
+            return true;
+        }
+        log.warn("GridFS content {} has no counted references but {} files point at it, keeping it", contentId,
+            references);
+        Document metadata = claimed.get("metadata", Document.class);
+        Update restore = new Update().set(GRIDFS_REF_COUNT_FIELD, references);
+        if (metadata != null && metadata.get("sha256") != null) {
+            restore.set(GRIDFS_HASH_FIELD, metadata.get("sha256"));
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(contentId)), restore, GRIDFS_FILES_COLLECTION);
+        return false;
+    }
+}
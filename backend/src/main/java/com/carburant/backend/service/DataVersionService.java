@@ -0,0 +1,108 @@
+package com.carburant.backend.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps monotonically increasing data versions per (type, year, region) scope.
+ *
+ * Every write bumps the exact scope and all of its wildcard parents, so a read
+ * for any combination of filters is answered with a single map lookup. Writes
+ * whose scope is not fully known (bulk deletes by type, deletes by id) bump the
+ * namespace generation instead, which invalidates every scope of that namespace.
+ * Versions live in memory: the boot epoch is part of every tag so that tags
+ * issued by a previous process never match.
+ */
+@Slf4j
+@Service
+public class DataVersionService {
+
+    public static final String RECORDS = "records";
+    public static final String REGRESSION = "regression";
+
+    private static final String ANY = "*";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Record a write to a fully known scope
+     *
+     * @param namespace The data namespace (records, regression)
+     * @param type The vehicle type of the written data
+     * @param year The year of the written data
+     * @param region The region of the written data
+     */
+    public void bump(String namespace, String type, String year, String region) {
+        String t = exact(type);
+        String y = exact(year);
+        String r = exact(region);
+        for (String kt : new String[] { t, ANY }) {
+            for (String ky : new String[] { y, ANY }) {
+                for (String kr : new String[] { r, ANY }) {
+                    counter(versions, key(namespace, kt, ky, kr)).incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a write whose scope is unknown or partial; invalidates the whole namespace
+     *
+     * @param namespace The data namespace (records, regression)
+     */
+    public void bumpAll(String namespace) {
+        long generation = counter(generations, namespace).incrementAndGet();
+        log.debug("Data generation for {} is now {}", namespace, generation);
+    }
+
+    /**
+     * Current version token of a scope; null or "all" filters are wildcards
+     *
+     * @param namespace The data namespace (records, regression)
+     * @param type The vehicle type filter
+     * @param year The year filter
+     * @param region The region filter
+     * @return An opaque token that changes whenever data in the scope changes
+     */
+    public String version(String namespace, String type, String year, String region) {
+        long generation = counter(generations, namespace).get();
+        long version = counter(versions, key(namespace, filter(type), filter(year), filter(region))).get();
+        return epoch + "-" + generation + "-" + version;
+    }
+
+    /**
+     * Strong entity tag for a response built from the given scopes
+     *
+     * @param namespace The data namespace (records, regression)
+     * @param type The vehicle type filter
+     * @param year The year filter
+     * @param region The region filter
+     * @return A quoted ETag value
+     */
+    public String etag(String namespace, String type, String year, String region) {
+        return "\"" + namespace + "-" + version(namespace, type, year, region) + "\"";
+    }
+
+    private AtomicLong counter(Map<String, AtomicLong> counters, String key) {
+        return counters.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private String key(String namespace, String type, String year, String region) {
+        return namespace + '|' + type + '|' + year + '|' + region;
+    }
+
+    private String exact(String value) {
+        return value == null ? "" : value;
+    }
+
+    private String filter(String value) {
+        return value == null || value.isEmpty() || "all".equalsIgnoreCase(value) ? ANY : value;
+    }
+}
@@ -9,8 +9,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
@@ -29,6 +31,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.SheetNameReader;
 
 @Service
 public class ExcelService {
@@ -58,8 +61,22 @@ public class ExcelService {
      * @return List of sheet names in the Excel file
      */
     public List<String> extractSheetNames(MultipartFile file) throws IOException {
-        try (InputStream is = file.getInputStream();
-             Workbook workbook = WorkbookFactory.create(is)) {
+        try (InputStream is = file.getInputStream()) {
+            return extractSheetNames(is);
+        }
+    }
+
+    /**
+     * Extract sheet names from an Excel workbook stream; the caller closes the stream.
+     * Only the workbook directory is read unless the format has no such fast path.
+     */
+    public List<String> extractSheetNames(InputStream inputStream) throws IOException {
+        InputStream workbookStream = FileMagic.prepareToCheckMagic(inputStream);
+        List<String> fastSheetNames = SheetNameReader.read(workbookStream);
+        if (fastSheetNames != null) {
+            return fastSheetNames;
+        }
+        try (Workbook workbook = WorkbookFactory.create(workbookStream)) {
             
             List<String> sheetNames = new ArrayList<>();
             for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
@@ -88,6 +105,17 @@ public class ExcelService {
         public Map<String, Map<String, Double>> getMonthlyTotals() {
             return monthlyTotals;
         }
+
+        /**
+         * Deep copy, so a cached result is never modified by its callers
+         */
+        public ExtractionResult copy() {
+            List<VehicleRecord> records = new ArrayList<>(vehicleRecords.size());
+            vehicleRecords.forEach(record -> records.add(record.copy()));
+            Map<String, Map<String, Double>> totals = new TreeMap<>();
+            monthlyTotals.forEach((month, values) -> totals.put(month, new HashMap<>(values)));
+            return new ExtractionResult(records, totals);
+        }
     }
 
     /**
@@ -233,7 +261,9 @@ public class ExcelService {
                         .coutDT(coutDT)
                         .kilometrage(kilometrage)
                         .produitsTonnes(produitsTonnes)
-                        .rawValues(rawValues);
+                        .rawValues(rawValues)
+                        .sourceSheet(sheetName)
+                        .sourceRow(i + 1); // resolvedSheet rows are POI row indexes
                     
                     // Calculate IPE values
                     calculateIpeValues(recordBuilder, consommationL, kilometrage, produitsTonnes, ipeDirectValue);
@@ -269,6 +299,18 @@ public class ExcelService {
      * @return ExtractionResult containing vehicle records and monthly totals
      */
     public ExtractionResult extractDataFromInputStream(InputStream inputStream, String sheetName) throws IOException {
+        return extractDataFromInputStream(inputStream, sheetName, rowsRead -> { });
+    }
+
+    /**
+     * Extracts data from a sheet in an Excel file using an InputStream, reporting progress
+     * @param inputStream The input stream for the Excel file
+     * @param sheetName The name of the sheet to extract data from
+     * @param rowListener Receives the number of data rows read so far
+     * @return ExtractionResult containing vehicle records and monthly totals
+     */
+    public ExtractionResult extractDataFromInputStream(InputStream inputStream, String sheetName,
+                                                       IntConsumer rowListener) throws IOException {
         if (inputStream == null) {
             logger.error("Input stream is null");
             throw new IllegalArgumentException("File cannot be empty");
@@ -320,6 +362,7 @@ public class ExcelService {
             
             // Skip header row
             for (int i = 1; i < resolvedSheet.size(); i++) {
+                rowListener.accept(i);
                 List<CellData> row = resolvedSheet.get(i);
                 if (row == null || row.isEmpty() || isEmptyRow(row)) {
                     continue;
@@ -403,7 +446,9 @@ public class ExcelService {
                         .coutDT(coutDT)
                         .kilometrage(kilometrage)
                         .produitsTonnes(produitsTonnes)
-                        .rawValues(rawValues);
+                        .rawValues(rawValues)
+                        .sourceSheet(sheetName)
+                        .sourceRow(i + 1); // resolvedSheet rows are POI row indexes
                     
                     // Calculate IPE values
                     calculateIpeValues(recordBuilder, consommationL, kilometrage, produitsTonnes, ipeDirectValue);
@@ -0,0 +1,128 @@
+package com.carburant.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.config.CacheConfig;
+import com.carburant.backend.utils.MonthOrder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Distinct values of the vehicle_data fields used by the filter dropdowns
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FacetService {
+
+    private static final String COLLECTION = "vehicle_data";
+
+    /** Facet name exposed by the API, mapped to the vehicle_data field it reads */
+    public static final Map<String, String> FACET_FIELDS = Map.of(
+        "types", "type",
+        "regions", "region",
+        "years", "year",
+        "months", "mois",
+        "matricules", "matricule");
+
+    private static final List<String> FACET_ORDER = List.of("types", "regions", "years", "months", "matricules");
+
+    // Months in calendar order, labels that are not a month after them
+    private static final Comparator<String> MONTH_ORDER = Comparator
+        .comparingInt((String mois) -> MonthOrder.monthNumber(mois) == 0 ? 13 : MonthOrder.monthNumber(mois))
+        .thenComparing(Comparator.naturalOrder());
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Get the distinct values of one facet, using a server-side distinct over the field index
+     *
+     * @param facet The facet name (types, regions, years, months, matricules)
+     * @param type Optional vehicle type to restrict the values to
+     * @return Sorted distinct values (months in calendar order), without null or blank entries
+     */
+    @Cacheable(cacheNames = CacheConfig.FACETS, keyGenerator = "recordsKeyGenerator")
+    public List<String> getDistinctValues(String facet, String type) {
+        String field = FACET_FIELDS.get(facet);
+        if (field == null) {
+            throw new IllegalArgumentException("Unknown facet: " + facet);
+        }
+
+        Query query = new Query();
+        if (isFilter(type)) {
+            query.addCriteria(Criteria.where("type").is(type));
+        }
+
+        List<String> values = mongoTemplate.findDistinct(query, field, COLLECTION, String.class);
+        return clean(facet, values);
+    }
+
+    /**
+     * Get the values of every facet in a single $facet aggregation round trip
+     *
+     * @param type Optional vehicle type to restrict the values to
+     * @return Facet name to sorted distinct values
+     */
+    @Cacheable(cacheNames = CacheConfig.FACETS, keyGenerator = "recordsKeyGenerator")
+    public Map<String, List<String>> getAllFacets(String type) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (isFilter(type)) {
+            stages.add(Aggregation.match(Criteria.where("type").is(type)));
+        }
+        stages.add(Aggregation.project(FACET_FIELDS.values().toArray(String[]::new)));
+
+        FacetOperation facets = null;
+        for (String facet : FACET_ORDER) {
+            AggregationOperation group = Aggregation.group(FACET_FIELDS.get(facet));
+            facets = facets == null ? Aggregation.facet(group).as(facet) : facets.and(group).as(facet);
+        }
+        stages.add(facets);
+
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(stages), COLLECTION, Document.class)
+            .getUniqueMappedResult();
+
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (String facet : FACET_ORDER) {
+            List<String> facetValues = new ArrayList<>();
+            if (result != null) {
+                for (Document bucket : result.getList(facet, Document.class, List.of())) {
+                    Object value = bucket.get("_id");
+                    facetValues.add(value == null ? null : value.toString());
+                }
+            }
+            values.put(facet, clean(facet, facetValues));
+        }
+        log.debug("Loaded filter facets for type {}: {}", type, values.keySet());
+        return values;
+    }
+
+    private boolean isFilter(String type) {
+        return type != null && !type.isEmpty() && !"all".equalsIgnoreCase(type);
+    }
+
+    private List<String> clean(String facet, List<String> values) {
+        return values.stream()
+            .filter(Objects::nonNull)
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .distinct()
+            .sorted("months".equals(facet) ? MONTH_ORDER : Comparator.naturalOrder())
+            .toList();
+    }
+}
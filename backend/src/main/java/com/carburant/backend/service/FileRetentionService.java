@@ -0,0 +1,284 @@
+package com.carburant.backend.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.FileRetentionReport;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retention engine for soft-deleted files.
+ *
+ * Files that have been inactive for longer than the retention window are either
+ * purged (document and content removed) or archived (metadata kept, content
+ * dropped). GridFS content is shared by identical uploads and is only deleted once
+ * its reference count drops to zero. Work is done in small batches with a pause in
+ * between, so a large backlog is spread over time instead of loading the database.
+ */
+@Slf4j
+@Service
+public class FileRetentionService {
+
+    public enum RetentionMode {
+        PURGE, ARCHIVE
+    }
+
+    private static final String FILES_COLLECTION = "files";
+
+    private final MongoTemplate mongoTemplate;
+    private final GridFsOperations gridFsOperations;
+    private final ContentReferenceService contentReferenceService;
+    private final boolean enabled;
+    private final Duration window;
+    private final RetentionMode mode;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int maxBatches;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter filesPurged;
+    private final Counter filesArchived;
+    private final Counter filesBytesReclaimed;
+    private final Counter gridFsBytesReclaimed;
+
+    public FileRetentionService(
+            MongoTemplate mongoTemplate,
+            GridFsOperations gridFsOperations,
+            ContentReferenceService contentReferenceService,
+            MeterRegistry meterRegistry,
+            @Value("${app.file-retention.enabled:true}") boolean enabled,
+            @Value("${app.file-retention.window:90d}") Duration window,
+            @Value("${app.file-retention.mode:archive}") RetentionMode mode,
+            @Value("${app.file-retention.batch-size:50}") int batchSize,
+            @Value("${app.file-retention.batch-pause:500ms}") Duration batchPause,
+            @Value("${app.file-retention.max-batches:200}") int maxBatches) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsOperations = gridFsOperations;
+        this.contentReferenceService = contentReferenceService;
+        this.enabled = enabled;
+        this.window = window;
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPause = batchPause;
+        this.maxBatches = Math.max(1, maxBatches);
+        this.filesPurged = Counter.builder("energix.file.retention.files")
+            .description("Soft-deleted files handled by the retention job")
+            .tag("action", "purged")
+            .register(meterRegistry);
+        this.filesArchived = Counter.builder("energix.file.retention.files")
+            .description("Soft-deleted files handled by the retention job")
+            .tag("action", "archived")
+            .register(meterRegistry);
+        this.filesBytesReclaimed = Counter.builder("energix.file.retention.reclaimed")
+            .description("Bytes reclaimed by the retention job")
+            .baseUnit("bytes")
+            .tag("store", FILES_COLLECTION)
+            .register(meterRegistry);
+        this.gridFsBytesReclaimed = Counter.builder("energix.file.retention.reclaimed")
+            .description("Bytes reclaimed by the retention job")
+            .baseUnit("bytes")
+            .tag("store", "gridfs")
+            .register(meterRegistry);
+    }
+
+    public RetentionMode getMode() {
+        return mode;
+    }
+
+    @Scheduled(cron = "${app.file-retention.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        FileRetentionReport report = run(null);
+        if (report != null) {
+            log.info("File retention: {} files {} ({} failed), {} bytes reclaimed{}", report.getFilesProcessed(),
+                report.getMode(), report.getFilesFailed(), report.getTotalBytesReclaimed(),
+                report.isComplete() ? "" : "; batch limit reached, the rest is left for the next run");
+        }
+    }
+
+    /**
+     * Purge or archive the files that were soft-deleted before the retention window
+     *
+     * @param modeOverride Mode to apply instead of the configured one (optional)
+     * @return The run report, or null if another run is in progress
+     */
+    public FileRetentionReport run(RetentionMode modeOverride) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("File retention is already running");
+            return null;
+        }
+        try {
+            RetentionMode runMode = modeOverride != null ? modeOverride : mode;
+            FileRetentionReport report = new FileRetentionReport();
+            report.setMode(runMode.name().toLowerCase());
+            report.setCutoff(LocalDateTime.now().minus(window));
+            stampDeletionDates();
+
+            Set<Object> failed = new HashSet<>();
+            while (report.getBatches() < maxBatches) {
+                List<Document> batch = nextBatch(report.getCutoff(), runMode, failed);
+                if (batch.isEmpty()) {
+                    report.setComplete(true);
+                    break;
+                }
+                report.setBatches(report.getBatches() + 1);
+                for (Document file : batch) {
+                    try {
+                        if (runMode == RetentionMode.PURGE) {
+                            purge(file.get("_id"), report);
+                        } else {
+                            archive(file.get("_id"), report);
+                        }
+                    } catch (RuntimeException e) {
+                        log.warn("File retention failed for file {}: {}", file.get("_id"), e.getMessage());
+                        failed.add(file.get("_id"));
+                        report.setFilesFailed(report.getFilesFailed() + 1);
+                    }
+                }
+                if (batch.size() < batchSize) {
+                    report.setComplete(true);
+                    break;
+                }
+                if (!pause()) {
+                    break;
+                }
+            }
+
+            report.setFinishedAt(LocalDateTime.now());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Files soft-deleted before deletedAt was recorded have no deletion date; their
+     * upload date says nothing about when they were deleted, so they start their
+     * retention window now
+     */
+    private void stampDeletionDates() {
+        long stamped = mongoTemplate.updateMulti(
+            Query.query(Criteria.where("active").is(false).and("deletedAt").exists(false)),
+            Update.update("deletedAt", LocalDateTime.now()), FILES_COLLECTION).getModifiedCount();
+        if (stamped > 0) {
+            log.info("File retention: {} soft-deleted files without a deletion date start their retention window now", stamped);
+        }
+    }
+
+    /**
+     * Next eligible files, ids only: deleted before the cutoff and not yet archived
+     */
+    private List<Document> nextBatch(LocalDateTime cutoff, RetentionMode runMode, Set<Object> failed) {
+        Criteria criteria = Criteria.where("active").is(false).and("deletedAt").lt(cutoff);
+        if (runMode == RetentionMode.ARCHIVE) {
+            criteria.and("archivedAt").exists(false);
+        }
+        if (!failed.isEmpty()) {
+            criteria.and("_id").nin(new ArrayList<>(failed));
+        }
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.ASC, "deletedAt"))
+            .limit(batchSize);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, FILES_COLLECTION);
+    }
+
+    private void purge(Object id, FileRetentionReport report) {
+        Document removed = mongoTemplate.findAndRemove(
+            Query.query(Criteria.where("_id").is(id).and("active").is(false)), Document.class, FILES_COLLECTION);
+        if (removed == null) {
+            return;
+        }
+        long reclaimed = bsonSize(removed);
+        report.setFilesProcessed(report.getFilesProcessed() + 1);
+        report.setFilesBytesReclaimed(report.getFilesBytesReclaimed() + reclaimed);
+        filesPurged.increment();
+        filesBytesReclaimed.increment(reclaimed);
+        releaseContent(removed.getString("contentId"), report);
+    }
+
+    private void archive(Object id, FileRetentionReport report) {
+        Document before = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(id).and("active").is(false)),
+            new Update().unset("content").unset("contentId").set("archivedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(false),
+            Document.class, FILES_COLLECTION);
+        if (before == null) {
+            return;
+        }
+        Document after = new Document(before);
+        after.remove("content");
+        after.remove("contentId");
+        long reclaimed = Math.max(0, bsonSize(before) - bsonSize(after));
+        report.setFilesProcessed(report.getFilesProcessed() + 1);
+        report.setFilesBytesReclaimed(report.getFilesBytesReclaimed() + reclaimed);
+        filesArchived.increment();
+        filesBytesReclaimed.increment(reclaimed);
+        releaseContent(before.getString("contentId"), report);
+    }
+
+    /**
+     * Drop the reference the removed file held on its GridFS content, and delete the
+     * content once it is unreferenced. The deletion only happens after claiming the
+     * content, which fails if a concurrent upload has adopted it in the meantime.
+     */
+    private void releaseContent(String contentId, FileRetentionReport report) {
+        if (contentId == null || !ObjectId.isValid(contentId)) {
+            return;
+        }
+        ObjectId gridFsId = new ObjectId(contentId);
+        contentReferenceService.release(gridFsId, 1);
+        Query gridFsQuery = Query.query(Criteria.where("_id").is(gridFsId));
+        GridFSFile file = gridFsOperations.findOne(gridFsQuery);
+        if (file == null || !contentReferenceService.claimForDeletion(gridFsId)) {
+            return;
+        }
+        gridFsOperations.delete(gridFsQuery);
+        report.setGridFsFilesDeleted(report.getGridFsFilesDeleted() + 1);
+        report.setGridFsBytesReclaimed(report.getGridFsBytesReclaimed() + file.getLength());
+        gridFsBytesReclaimed.increment(file.getLength());
+    }
+
+    private boolean pause() {
+        if (batchPause.isZero() || batchPause.isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long bsonSize(Document document) {
+        Codec<Document> codec = mongoTemplate.getDb().getCodecRegistry().get(Document.class);
+        return new RawBsonDocument(document, codec).getByteBuffer().remaining();
+    }
+}
@@ -1,28 +1,61 @@
 package com.carburant.backend.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.InflaterInputStream;
 
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.carburant.backend.model.FileDocument;
+import com.carburant.backend.model.Notification;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.model.dto.FileDTO;
+import com.carburant.backend.model.dto.FileDeletionResult;
 import com.carburant.backend.repository.FileRepository;
-import com.carburant.backend.repository.VehicleRepository;
+import com.carburant.backend.utils.ContentHashUtils;
 import com.carburant.backend.utils.ExcelHelper;
+import com.mongodb.client.gridfs.model.GridFSFile;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Service for handling file operations
+ * Service for handling file operations.
+ * File content is stored in GridFS; the files collection only holds metadata.
  */
 @Service
 @Slf4j
 public class FileService {
 
+    private static final String FILES_COLLECTION = "files";
+    private static final String LEGACY_CONTENT_FIELD = "content";
+    
+    // GridFS metadata of compressed content: the stored bytes are deflated, originalSize is the file size
+    public static final String GRIDFS_COMPRESSION = "compression";
+    public static final String GRIDFS_DEFLATE = "deflate";
+    public static final String GRIDFS_ORIGINAL_SIZE = "originalSize";
+    
     @Autowired
     private FileRepository fileRepository;
     
@@ -30,7 +63,21 @@ public class FileService {
     private ExcelHelper excelHelper;
     
     @Autowired
-    private VehicleRepository vehicleRepository;
+    private DataVersionService dataVersionService;
+    
+    @Autowired
+    private RegressionStatisticsService regressionStatisticsService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private GridFsOperations gridFsOperations;
+    
+    @Autowired
+    private ContentReferenceService contentReferenceService;
+    
+    private volatile Boolean transactionsSupported;
     
     /**
      * Store a file in MongoDB
@@ -42,28 +89,102 @@ public class FileService {
      * @return The stored file document
      */
     public FileDocument storeFile(MultipartFile file, String vehicleType, int year, String region) throws IOException {
-        String filename = file.getOriginalFilename();
-        log.info("Storing file: {} with size: {} bytes, for region: {}", filename, file.getSize(), region);
+        return storeFile(file, file.getOriginalFilename(), file.getContentType(), file.getSize(), vehicleType, year, region);
+    }
+    
+    /**
+     * Store file content from any re-readable source in MongoDB
+     * 
+     * @param source The source of the file content
+     * @param filename The original file name
+     * @param contentType The content type of the file
+     * @param size The size of the file in bytes
+     * @param vehicleType The vehicle type associated with the file
+     * @param year The year associated with the file
+     * @param region The region associated with the file
+     * @return The stored file document
+     */
+    public FileDocument storeFile(InputStreamSource source, String filename, String contentType, long size,
+                                  String vehicleType, int year, String region) throws IOException {
+        return storeFile(source, filename, contentType, size, null, vehicleType, year, region);
+    }
+    
+    /**
+     * Store file content from any re-readable source in MongoDB. Content is addressed by its
+     * SHA-256 hash: identical content already in GridFS is referenced instead of stored again,
+     * and each file document holds one counted reference on its content.
+     * 
+     * @param source The source of the file content
+     * @param filename The original file name
+     * @param contentType The content type of the file
+     * @param size The size of the file in bytes
+     * @param contentHash The SHA-256 of the content, or null to compute it from the source
+     * @param vehicleType The vehicle type associated with the file
+     * @param year The year associated with the file
+     * @param region The region associated with the file
+     * @return The stored file document
+     */
+    public FileDocument storeFile(InputStreamSource source, String filename, String contentType, long size,
+                                  String contentHash, String vehicleType, int year, String region) throws IOException {
+        log.info("Storing file: {} with size: {} bytes, for region: {}", filename, size, region);
         
-        // Extract available sheets from Excel file
-        List<String> availableSheets = excelHelper.getSheetNames(file.getInputStream());
+        String hash = contentHash != null ? contentHash : ContentHashUtils.sha256(source);
+        // Taking the reference and finding the content are one update, so retention cannot delete it in between
+        Optional<ObjectId> adopted = contentReferenceService.adopt(hash);
         
-        FileDocument fileDocument = FileDocument.builder()
-            .name(filename)
-            .filename(filename)
-            .contentType(file.getContentType())
-            .size(file.getSize())
-            .content(file.getBytes())
-            .uploadDate(LocalDateTime.now())
-            .vehicleType(vehicleType)
-            .year(year)
-            .region(region)
-            .availableSheets(availableSheets)
-            .processed(false)
-            .active(true)
-            .build();
+        ObjectId contentId;
+        List<String> availableSheets = null;
+        if (adopted.isPresent()) {
+            contentId = adopted.get();
+            availableSheets = findAvailableSheets(hash);
+            log.info("Content of {} already stored as GridFS file {}, reusing it", filename, contentId);
+        } else {
+            // Stream the content into GridFS chunks; the metadata document never holds the bytes
+            try (InputStream inputStream = source.getInputStream()) {
+                Document metadata = new Document("vehicleType", vehicleType)
+                    .append("year", year)
+                    .append("region", region)
+                    .append("sha256", hash)
+                    .append(ContentReferenceService.REF_COUNT, 1);
+                contentId = gridFsOperations.store(inputStream, filename, contentType, metadata);
+            }
+        }
         
-        return fileRepository.save(fileDocument);
+        try {
+            // Extract available sheets from Excel file unless known for this content
+            if (availableSheets == null) {
+                availableSheets = excelHelper.getSheetNames(source);
+            }
+            
+            FileDocument fileDocument = FileDocument.builder()
+                .name(filename)
+                .filename(filename)
+                .contentType(contentType)
+                .size(size)
+                .contentId(contentId.toHexString())
+                .contentHash(hash)
+                .uploadDate(LocalDateTime.now())
+                .vehicleType(vehicleType)
+                .year(year)
+                .region(region)
+                .availableSheets(availableSheets)
+                .processed(false)
+                .active(true)
+                .build();
+            
+            return fileRepository.save(fileDocument);
+        } catch (IOException | RuntimeException e) {
+            // No file document points at the content: give the reference back for retention to reclaim
+            contentReferenceService.release(contentId, 1);
+            throw e;
+        }
+    }
+    
+    private List<String> findAvailableSheets(String contentHash) {
+        Query query = Query.query(Criteria.where("contentHash").is(contentHash).and("availableSheets").ne(null));
+        query.fields().include("availableSheets");
+        FileDocument known = mongoTemplate.findOne(query, FileDocument.class);
+        return known != null ? known.getAvailableSheets() : null;
     }
     
     /**
@@ -79,15 +200,13 @@ public class FileService {
     }
     
     /**
-     * Get all files
+     * Get metadata summaries of all files
      * 
-     * @return List of file documents (without content to reduce payload size)
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getAllFiles() {
-        List<FileDocument> files = fileRepository.findByActiveTrue();
-        // Remove content to reduce payload size
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getAllFiles(Pageable pageable) {
+        return fileRepository.findSummariesByActiveTrue(pageable);
     }
     
     /**
@@ -97,18 +216,30 @@ public class FileService {
      * @return The file document
      */
     public Optional<FileDocument> getFile(String id) {
-        return fileRepository.findByIdAndActiveTrue(id);
+        return Optional.ofNullable(mongoTemplate.findOne(activeFileQuery(id), FileDocument.class));
     }
     
     /**
-     * Get file content by ID
+     * Get the content of a file as a streamable resource, supporting byte ranges
      * 
-     * @param id The file ID
-     * @return The file content as bytes
+     * @param file The file document
+     * @return The file content, or empty if it is not stored
      */
-    public byte[] getFileContent(String id) {
-        Optional<FileDocument> fileOpt = fileRepository.findByIdAndActiveTrue(id);
-        return fileOpt.map(FileDocument::getContent).orElse(null);
+    public Optional<Resource> getFileContent(FileDocument file) {
+        if (file.getContentId() != null) {
+            GridFSFile gridFsFile = gridFsOperations.findOne(
+                Query.query(Criteria.where("_id").is(new ObjectId(file.getContentId()))));
+            return Optional.ofNullable(gridFsFile).map(found -> new GridFsContentResource(gridFsOperations, found));
+        }
+        
+        // Files uploaded before GridFS storage keep their bytes inline in the files collection
+        Query query = Query.query(Criteria.where("_id").is(file.getId()));
+        query.fields().include(LEGACY_CONTENT_FIELD);
+        Document legacy = mongoTemplate.findOne(query, Document.class, FILES_COLLECTION);
+        if (legacy != null && legacy.get(LEGACY_CONTENT_FIELD) instanceof Binary binary) {
+            return Optional.of(new ByteArrayResource(binary.getData()));
+        }
+        return Optional.empty();
     }
     
     /**
@@ -120,85 +251,140 @@ public class FileService {
      * @return The updated file document
      */
     public FileDocument updateFileMetadata(String id, boolean processed, int recordCount) {
-        Optional<FileDocument> fileOpt = fileRepository.findByIdAndActiveTrue(id);
-        if (fileOpt.isPresent()) {
-            FileDocument file = fileOpt.get();
-            file.setProcessed(processed);
-            file.setRecordCount(recordCount);
-            return fileRepository.save(file);
-        }
-        return null;
+        Update update = new Update()
+            .set("processed", processed)
+            .set("recordCount", recordCount);
+        return mongoTemplate.findAndModify(activeFileQuery(id), update,
+            FindAndModifyOptions.options().returnNew(true), FileDocument.class);
     }
     
     /**
-     * Delete file by ID (soft delete) and remove associated vehicle records
+     * Delete file by ID (soft delete) and remove associated vehicle records.
+     * The records and their anomaly notifications are removed with server-side deleteMany
+     * operations and the file is marked inactive with a metadata-only update, all in one
+     * MongoDB transaction when the deployment supports transactions.
      * 
      * @param id The file ID
-     * @return true if successful, false otherwise
+     * @return The deletion counts, or empty if the file was not found or already inactive
      */
-    public boolean deleteFile(String id) {
-        Optional<FileDocument> fileOpt = fileRepository.findByIdAndActiveTrue(id);
-        if (fileOpt.isPresent()) {
-            FileDocument file = fileOpt.get();
-            
-            // Delete associated vehicle records before marking the file as inactive
-            deleteAssociatedVehicleRecords(file);
-            
-            // Soft delete the file by marking it as inactive
-            file.setActive(false);
-            fileRepository.save(file);
-            log.info("File with ID {} has been marked as inactive and its associated records deleted", id);
-            return true;
+    public Optional<FileDeletionResult> deleteFile(String id) {
+        boolean transactional = supportsTransactions();
+        Cascade cascade;
+        try {
+            cascade = transactional
+                ? transactionTemplate().execute(status -> deleteFileCascade(id, true))
+                : deleteFileCascade(id, false);
+        } catch (FileAlreadyDeletedException e) {
+            cascade = null;
+        }
+        
+        if (cascade == null) {
+            log.warn("Attempted to delete file with ID {} but it was not found or already inactive", id);
+            return Optional.empty();
         }
-        log.warn("Attempted to delete file with ID {} but it was not found or already inactive", id);
-        return false;
+        // Only once committed: earlier, a concurrent read would cache or rebuild statistics from the old records
+        FileDeletionResult result = cascade.result();
+        dataVersionService.bump(DataVersionService.RECORDS, cascade.type(), cascade.year(), cascade.region());
+        if (result.getDeletedRecords() > 0) {
+            regressionStatisticsService.invalidate(cascade.type(), cascade.year(), cascade.region());
+        }
+        log.info("File with ID {} has been marked as inactive; {} records and {} anomaly notifications deleted (transactional: {})",
+            id, result.getDeletedRecords(), result.getDeletedNotifications(), transactional);
+        return Optional.of(result);
     }
-
-    /**
-     * Delete all vehicle records associated with a file
-     * 
-     * @param file The file document whose associated records should be deleted
-     */
-    private void deleteAssociatedVehicleRecords(FileDocument file) {
+    
+    private Cascade deleteFileCascade(String id, boolean transactional) {
+        Query fileQuery = activeFileQuery(id);
+        fileQuery.fields().include("vehicleType", "year", "region");
+        FileDocument file = mongoTemplate.findOne(fileQuery, FileDocument.class);
         if (file == null) {
-            log.warn("Attempted to delete associated records for a null file");
-            return;
+            return null;
         }
         
-        String vehicleType = file.getVehicleType();
-        int year = file.getYear();
-        String region = file.getRegion();
+        String year = String.valueOf(file.getYear());
+        long deletedRecords = mongoTemplate.remove(Query.query(Criteria.where("type").is(file.getVehicleType())
+            .and("year").is(year)
+            .and("region").is(file.getRegion())), VehicleRecord.class).getDeletedCount();
+        long deletedNotifications = mongoTemplate.remove(Query.query(Criteria.where("type").is(Notification.NotificationType.ANOMALY)
+            .and("vehicleType").is(file.getVehicleType())
+            .and("year").is(year)
+            .and("region").is(file.getRegion())), Notification.class).getDeletedCount();
         
-        log.info("Deleting vehicle records for type: {}, year: {}, region: {}", vehicleType, year, region);
+        Update softDelete = new Update().set("active", false).set("deletedAt", LocalDateTime.now());
+        if (mongoTemplate.updateFirst(activeFileQuery(id), softDelete, FileDocument.class).getModifiedCount() == 0) {
+            // Deleted concurrently: roll back the cascade when it runs in a transaction
+            throw new FileAlreadyDeletedException();
+        }
         
-        // Delete records matching the file's metadata
-        // The deleteByTypeAndYearAndRegion method returns void, so we can't get the count directly
-        vehicleRepository.deleteByTypeAndYearAndRegion(vehicleType, String.valueOf(year), region);
-        log.info("Deleted vehicle records associated with file ID: {}", file.getId());
+        return new Cascade(new FileDeletionResult(id, deletedRecords, deletedNotifications, transactional),
+            file.getVehicleType(), year, file.getRegion());
+    }
+    
+    /**
+     * Outcome of a cascade and the (type, year, region) scope whose records it deleted
+     */
+    private record Cascade(FileDeletionResult result, String type, String year, String region) {
     }
     
+    /**
+     * Multi-document transactions need a replica set or a sharded cluster; standalone
+     * servers (the default local setup) run the cascade without one
+     */
+    private boolean supportsTransactions() {
+        Boolean supported = transactionsSupported;
+        if (supported == null) {
+            try {
+                Document hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+                supported = hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+            } catch (RuntimeException e) {
+                log.warn("Could not detect MongoDB topology, deleting without transactions: {}", e.getMessage());
+                supported = false;
+            }
+            transactionsSupported = supported;
+        }
+        return supported;
+    }
+    
+    private TransactionTemplate transactionTemplate() {
+        // Local transaction manager: a global bean would make every @Transactional service transactional
+        return new TransactionTemplate(new MongoTransactionManager(mongoTemplate.getMongoDatabaseFactory()));
+    }
+    
+    private static class FileAlreadyDeletedException extends RuntimeException {
+        FileAlreadyDeletedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Query for an active file by ID that never transfers inline legacy content
+     */
+    private Query activeFileQuery(String id) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("active").is(true));
+        query.fields().exclude(LEGACY_CONTENT_FIELD);
+        return query;
+    }
+
     /**
      * Get files by vehicle type
      * 
      * @param vehicleType The vehicle type
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getFilesByVehicleType(String vehicleType) {
-        List<FileDocument> files = fileRepository.findByVehicleTypeAndActiveTrue(vehicleType);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getFilesByVehicleType(String vehicleType, Pageable pageable) {
+        return fileRepository.findSummariesByVehicleTypeAndActiveTrue(vehicleType, pageable);
     }
     
     /**
      * Get files by year
      * 
      * @param year The year
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getFilesByYear(int year) {
-        List<FileDocument> files = fileRepository.findByYearAndActiveTrue(year);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getFilesByYear(int year, Pageable pageable) {
+        return fileRepository.findSummariesByYearAndActiveTrue(year, pageable);
     }
     
     /**
@@ -206,24 +392,22 @@ public class FileService {
      * 
      * @param vehicleType The vehicle type
      * @param year The year
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getFilesByVehicleTypeAndYear(String vehicleType, int year) {
-        List<FileDocument> files = fileRepository.findByVehicleTypeAndYearAndActiveTrue(vehicleType, year);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getFilesByVehicleTypeAndYear(String vehicleType, int year, Pageable pageable) {
+        return fileRepository.findSummariesByVehicleTypeAndYearAndActiveTrue(vehicleType, year, pageable);
     }
     
     /**
      * Get files by region
      * 
      * @param region The region
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getFilesByRegion(String region) {
-        List<FileDocument> files = fileRepository.findByRegionAndActiveTrue(region);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getFilesByRegion(String region, Pageable pageable) {
+        return fileRepository.findSummariesByRegionAndActiveTrue(region, pageable);
     }
     
     /**
@@ -231,12 +415,11 @@ public class FileService {
      * 
      * @param vehicleType The vehicle type
      * @param region The region
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getFilesByVehicleTypeAndRegion(String vehicleType, String region) {
-        List<FileDocument> files = fileRepository.findByVehicleTypeAndRegionAndActiveTrue(vehicleType, region);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getFilesByVehicleTypeAndRegion(String vehicleType, String region, Pageable pageable) {
+        return fileRepository.findSummariesByVehicleTypeAndRegionAndActiveTrue(vehicleType, region, pageable);
     }
     
     /**
@@ -244,12 +427,11 @@ public class FileService {
      * 
      * @param year The year
      * @param region The region
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
      */
-    public List<FileDocument> getFilesByYearAndRegion(int year, String region) {
-        List<FileDocument> files = fileRepository.findByYearAndRegionAndActiveTrue(year, region);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    public Page<FileDTO> getFilesByYearAndRegion(int year, String region, Pageable pageable) {
+        return fileRepository.findSummariesByYearAndRegionAndActiveTrue(year, region, pageable);
     }
     
     /**
@@ -258,11 +440,52 @@ public class FileService {
      * @param vehicleType The vehicle type
      * @param year The year
      * @param region The region
-     * @return List of file documents
+     * @param pageable Page and sort to apply (may be unpaged)
+     * @return Page of file summaries
+     */
+    public Page<FileDTO> getFilesByVehicleTypeYearAndRegion(String vehicleType, int year, String region, Pageable pageable) {
+        return fileRepository.findSummariesByVehicleTypeAndYearAndRegionAndActiveTrue(vehicleType, year, region, pageable);
+    }
+    
+    /**
+     * Whether a GridFS file holds deflate-compressed content (archived files)
+     */
+    public static boolean isDeflated(GridFSFile file) {
+        return file.getMetadata() != null && GRIDFS_DEFLATE.equals(file.getMetadata().getString(GRIDFS_COMPRESSION));
+    }
+    
+    /**
+     * GridFS content that opens a fresh download stream on every read, so Spring MVC
+     * can serve several byte ranges of the same file. Deflated content is inflated on the fly.
      */
-    public List<FileDocument> getFilesByVehicleTypeYearAndRegion(String vehicleType, int year, String region) {
-        List<FileDocument> files = fileRepository.findByVehicleTypeAndYearAndRegionAndActiveTrue(vehicleType, year, region);
-        files.forEach(file -> file.setContent(null));
-        return files;
+    private static class GridFsContentResource extends AbstractResource {
+        private final GridFsOperations gridFsOperations;
+        private final GridFSFile file;
+        
+        GridFsContentResource(GridFsOperations gridFsOperations, GridFSFile file) {
+            this.gridFsOperations = gridFsOperations;
+            this.file = file;
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            InputStream content = gridFsOperations.getResource(file).getInputStream();
+            return isDeflated(file) ? new InflaterInputStream(content) : content;
+        }
+        
+        @Override
+        public long contentLength() {
+            return isDeflated(file) ? file.getMetadata().get(GRIDFS_ORIGINAL_SIZE, Number.class).longValue() : file.getLength();
+        }
+        
+        @Override
+        public String getFilename() {
+            return file.getFilename();
+        }
+        
+        @Override
+        public String getDescription() {
+            return "GridFS file [" + file.getObjectId().toHexString() + "]";
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.carburant.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.carburant.backend.model.FileDocument;
+import com.carburant.backend.model.ImportJob;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.model.dto.ImportDiffResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs upload imports (parse, store file, write records) on the bounded import executor
+ * and keeps their progress for status polling
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private final AsyncTaskExecutor importExecutor;
+    private final ExcelService excelService;
+    private final FileService fileService;
+    private final VehicleService vehicleService;
+    private final Duration retention;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(
+            @Qualifier("importExecutor") AsyncTaskExecutor importExecutor,
+            ExcelService excelService,
+            FileService fileService,
+            VehicleService vehicleService,
+            @Value("${app.import.job-retention:1h}") Duration retention) {
+        this.importExecutor = importExecutor;
+        this.excelService = excelService;
+        this.fileService = fileService;
+        this.vehicleService = vehicleService;
+        this.retention = retention;
+    }
+
+    /**
+     * Submit an import; the upload is copied to a temp file so the request can return immediately
+     *
+     * @return The queued job
+     * @throws TaskRejectedException If the import queue is full
+     */
+    public ImportJob submit(MultipartFile file, String sheetName, String vehicleType, String year,
+                            String month, boolean replaceExisting, String region, boolean incremental) throws IOException {
+        purgeFinishedJobs();
+
+        Path tempFile = Files.createTempFile("energix-import-", ".upload");
+        file.transferTo(tempFile);
+
+        ImportJob job = new ImportJob(file.getOriginalFilename(), sheetName, vehicleType, year, month, region, replaceExisting,
+            incremental);
+        jobs.put(job.getId(), job);
+        try {
+            importExecutor.execute(() -> run(job, tempFile, file.getContentType()));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            deleteQuietly(tempFile);
+            throw e;
+        }
+
+        log.info("Queued import job {} for file {} (sheet: {}, type: {}, year: {}, region: {})",
+            job.getId(), job.getFilename(), sheetName, vehicleType, year, region);
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<ImportJob> getJobs() {
+        return jobs.values().stream()
+            .sorted(Comparator.comparing(ImportJob::getSubmittedAt).reversed())
+            .toList();
+    }
+
+    private void run(ImportJob job, Path tempFile, String contentType) {
+        job.start();
+        try {
+            ExcelService.ExtractionResult extractionResult;
+            try (InputStream inputStream = Files.newInputStream(tempFile)) {
+                extractionResult = excelService.extractDataFromInputStream(inputStream, job.getSheetName(), job::rowParsed);
+            }
+            List<VehicleRecord> records = extractionResult.getVehicleRecords();
+            job.storingFile(records.size());
+
+            FileDocument savedFile = null;
+            try {
+                savedFile = fileService.storeFile(new FileSystemResource(tempFile), job.getFilename(), contentType,
+                    Files.size(tempFile), job.getVehicleType(), Integer.parseInt(job.getYear()), job.getRegion());
+            } catch (Exception e) {
+                // Same policy as the synchronous save: records are still imported
+                log.error("Import job {}: failed to store file in MongoDB", job.getId(), e);
+            }
+
+            job.writing(savedFile != null ? savedFile.getId() : null);
+            String fileId = savedFile != null ? savedFile.getId() : null;
+            int savedCount;
+            if (job.isIncremental()) {
+                ImportDiffResult diff = vehicleService.saveRecordsIncrementally(records, job.getVehicleType(), job.getYear(),
+                    job.getMonth(), job.getRegion(), fileId, savedRecord -> job.rowWritten());
+                job.diffCompleted(diff);
+                savedCount = diff.getRecordCount();
+            } else {
+                savedCount = vehicleService.saveRecords(records, job.getVehicleType(), job.getYear(), job.getMonth(),
+                    job.isReplaceExisting(), job.getRegion(), fileId, savedRecord -> job.rowWritten());
+            }
+
+            if (savedFile != null) {
+                fileService.updateFileMetadata(savedFile.getId(), true, savedCount);
+            }
+            job.complete();
+            log.info("Import job {} completed: {} records written ({} rows/s)",
+                job.getId(), savedCount, String.format("%.1f", job.getThroughputRowsPerSecond()));
+        } catch (Exception e) {
+            log.error("Import job {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temp file {}: {}", path, e.getMessage());
+        }
+    }
+}
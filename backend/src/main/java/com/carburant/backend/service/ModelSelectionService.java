@@ -0,0 +1,341 @@
+package com.carburant.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.ModelSelection;
+import com.carburant.backend.model.MonthlyData;
+import com.carburant.backend.model.RegressionCoefficients;
+import com.carburant.backend.utils.ClosedFormRegression;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses the model form of a scope by k-fold cross-validation, for any vehicle type.
+ *
+ * The candidate forms (kilométrage; kilométrage and tonnage; kilométrage, tonnage and
+ * their interaction) are cross-validated in parallel on the regression pool, on the
+ * same monthly points and the same folds. The simplest candidate whose cross-validated
+ * RMSE is within one standard error of the best one is chosen, so the interaction or
+ * the tonnage is only kept when it clearly predicts better.
+ */
+@Slf4j
+@Service
+public class ModelSelectionService {
+
+    public static final String ONE_STANDARD_ERROR_RULE = "one-standard-error";
+
+    /**
+     * Candidate forms, from the simplest; tonnage is in thousands of tons as in the SER equation
+     */
+    public enum Candidate {
+        KM(List.of("kilometrage")),
+        KM_TONNAGE(List.of("kilometrage", "tonnage")),
+        KM_TONNAGE_INTERACTION(List.of("kilometrage", "tonnage", "interaction"));
+
+        private final List<String> features;
+
+        Candidate(List<String> features) {
+            this.features = features;
+        }
+
+        public List<String> getFeatures() {
+            return features;
+        }
+
+        double[] row(double km, double tonnage) {
+            return switch (this) {
+                case KM -> new double[] { km };
+                case KM_TONNAGE -> new double[] { km, tonnage };
+                case KM_TONNAGE_INTERACTION -> new double[] { km, tonnage, km * tonnage };
+            };
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final RegressionStatisticsService regressionStatisticsService;
+    private final ForkJoinPool regressionPool;
+
+    public ModelSelectionService(
+            MongoTemplate mongoTemplate,
+            RegressionStatisticsService regressionStatisticsService,
+            @Qualifier("regressionPool") ForkJoinPool regressionPool) {
+        this.mongoTemplate = mongoTemplate;
+        this.regressionStatisticsService = regressionStatisticsService;
+        this.regressionPool = regressionPool;
+    }
+
+    /**
+     * Cross-validate the candidate forms of a scope and store the chosen one
+     *
+     * @param region Region (optional, all regions when null)
+     * @param folds Number of folds; capped at the number of points (leave-one-out)
+     * @param seed Seed of the fold assignment
+     * @return The stored selection
+     * @throws IllegalArgumentException If the scope has too few points for any candidate
+     */
+    public ModelSelection select(String vehicleType, String year, String region, int folds, long seed) {
+        if (folds < 2) {
+            throw new IllegalArgumentException("folds must be at least 2");
+        }
+        long start = System.nanoTime();
+        Points points = Points.of(regressionStatisticsService.monthlyData(vehicleType, year, region));
+        int k = Math.min(folds, points.size());
+        int[] foldOf = assignFolds(points.size(), k, seed);
+
+        List<ModelSelection.Candidate> candidates = regressionPool.submit(() -> Arrays.stream(Candidate.values())
+            .parallel()
+            .map(candidate -> crossValidate(candidate, points, foldOf, k))
+            .toList()).join();
+
+        ModelSelection.Candidate best = candidates.stream()
+            .filter(candidate -> candidate.getError() == null)
+            .min((a, b) -> Double.compare(a.getCvRmse(), b.getCvRmse()))
+            .orElseThrow(() -> new IllegalArgumentException(String.format(
+                "Not enough data points for model selection: %d months with kilometrage", points.size())));
+        ModelSelection.Candidate chosen = candidates.stream()
+            .filter(candidate -> candidate.getError() == null)
+            .filter(candidate -> candidate.getCvRmse() <= best.getCvRmse() + best.getCvRmseStandardError())
+            .findFirst()
+            .orElse(best);
+
+        ModelSelection selection = new ModelSelection();
+        selection.setId(ModelSelection.key(vehicleType, year, region));
+        selection.setVehicleType(vehicleType);
+        selection.setYear(year);
+        selection.setRegion(region);
+        selection.setObservations(points.size());
+        selection.setFolds(k);
+        selection.setSeed(seed);
+        selection.setRule(ONE_STANDARD_ERROR_RULE);
+        selection.setSelected(chosen.getName());
+        selection.setIntercept(chosen.getIntercept());
+        selection.setCoefficients(chosen.getCoefficients());
+        selection.setRegressionEquation(equation(chosen));
+        selection.setCandidates(candidates);
+        selection.setSelectedAt(LocalDateTime.now());
+        selection.setMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        ModelSelection saved = mongoTemplate.save(selection);
+        log.info("Model selection for type {} year {} region {}: {} ({} points, {} folds, {} ms)",
+            vehicleType, year, region, chosen.getName(), points.size(), k, selection.getMillis());
+        return saved;
+    }
+
+    public Optional<ModelSelection> getSelection(String vehicleType, String year, String region) {
+        return Optional.ofNullable(mongoTemplate.findById(ModelSelection.key(vehicleType, year, region), ModelSelection.class));
+    }
+
+    private ModelSelection.Candidate crossValidate(Candidate candidate, Points points, int[] foldOf, int k) {
+        ModelSelection.Candidate result = new ModelSelection.Candidate();
+        result.setName(candidate.name().toLowerCase());
+        result.setFeatures(candidate.getFeatures());
+        long start = System.nanoTime();
+        try {
+            int n = points.size();
+            double squaredErrors = 0;
+            double absoluteErrors = 0;
+            double[] foldRmse = new double[k];
+            for (int fold = 0; fold < k; fold++) {
+                List<Integer> training = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if (foldOf[i] != fold) {
+                        training.add(i);
+                    }
+                }
+                double[] beta = fit(candidate, points, training);
+                double foldSquaredErrors = 0;
+                int held = 0;
+                for (int i = 0; i < n; i++) {
+                    if (foldOf[i] == fold) {
+                        double error = points.consommation()[i] - predict(candidate, beta, points, i);
+                        foldSquaredErrors += error * error;
+                        absoluteErrors += Math.abs(error);
+                        held++;
+                    }
+                }
+                squaredErrors += foldSquaredErrors;
+                foldRmse[fold] = Math.sqrt(foldSquaredErrors / held);
+            }
+            result.setCvRmse(Math.sqrt(squaredErrors / n));
+            result.setCvMae(absoluteErrors / n);
+            result.setCvRmseStandardError(standardDeviation(foldRmse) / Math.sqrt(k));
+
+            List<Integer> all = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                all.add(i);
+            }
+            double[] beta = fit(candidate, points, all);
+            double residualSS = 0;
+            double totalSS = 0;
+            double meanY = Arrays.stream(points.consommation()).average().orElse(0);
+            for (int i = 0; i < n; i++) {
+                double residual = points.consommation()[i] - predict(candidate, beta, points, i);
+                residualSS += residual * residual;
+                totalSS += (points.consommation()[i] - meanY) * (points.consommation()[i] - meanY);
+            }
+            int p = candidate.getFeatures().size();
+            double rSquared = totalSS > 0 ? 1 - residualSS / totalSS : 0.0;
+            result.setRSquared(rSquared);
+            result.setAdjustedRSquared(1 - (1 - rSquared) * (n - 1) / (n - p - 1));
+            result.setIntercept(beta[0]);
+            result.setCoefficients(RegressionCoefficients.builder()
+                .kilometrage(beta[1])
+                .tonnage(p > 1 ? beta[2] : 0.0)
+                .interaction(p > 2 ? beta[3] : 0.0)
+                .build());
+        } catch (IllegalArgumentException e) {
+            result.setError(e.getMessage());
+        }
+        result.setMillis((System.nanoTime() - start) / 1_000_000.0);
+        return result;
+    }
+
+    /**
+     * Least squares on standardized features (kilometrage and its product with tonnage
+     * differ by orders of magnitude), returned on the original scale
+     *
+     * @return Intercept then one coefficient per feature
+     * @throws IllegalArgumentException If there are too few points or a feature is constant or collinear
+     */
+    private static double[] fit(Candidate candidate, Points points, List<Integer> rows) {
+        int p = candidate.getFeatures().size();
+        if (rows.size() < p + 2) {
+            throw new IllegalArgumentException(String.format(
+                "Not enough data points per fold: %d (at least %d required)", rows.size(), p + 2));
+        }
+        double[][] x = new double[rows.size()][];
+        double[] y = new double[rows.size()];
+        for (int r = 0; r < rows.size(); r++) {
+            int i = rows.get(r);
+            x[r] = candidate.row(points.kilometrage()[i], points.tonnage()[i]);
+            y[r] = points.consommation()[i];
+        }
+        double[] means = new double[p];
+        double[] scales = new double[p];
+        for (int j = 0; j < p; j++) {
+            double[] column = new double[x.length];
+            for (int r = 0; r < x.length; r++) {
+                column[r] = x[r][j];
+            }
+            means[j] = Arrays.stream(column).average().orElse(0);
+            scales[j] = standardDeviation(column);
+            if (!(scales[j] > 0)) {
+                throw new IllegalArgumentException("Singular data: " + candidate.getFeatures().get(j) + " does not vary");
+            }
+            for (int r = 0; r < x.length; r++) {
+                x[r][j] = (x[r][j] - means[j]) / scales[j];
+            }
+        }
+
+        OLSMultipleLinearRegression regression = new OLSMultipleLinearRegression();
+        regression.newSampleData(y, x);
+        double[] standardized = regression.estimateRegressionParameters();
+        double[] beta = new double[p + 1];
+        beta[0] = standardized[0];
+        for (int j = 0; j < p; j++) {
+            beta[j + 1] = standardized[j + 1] / scales[j];
+            beta[0] -= beta[j + 1] * means[j];
+        }
+        return beta;
+    }
+
+    private static double predict(Candidate candidate, double[] beta, Points points, int i) {
+        double[] row = candidate.row(points.kilometrage()[i], points.tonnage()[i]);
+        double prediction = beta[0];
+        for (int j = 0; j < row.length; j++) {
+            prediction += beta[j + 1] * row[j];
+        }
+        return prediction;
+    }
+
+    /**
+     * Fold of each point: a seeded shuffle dealt round-robin, so fold sizes differ by at most one
+     */
+    private static int[] assignFolds(int n, int k, long seed) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int[] foldOf = new int[n];
+        for (int position = 0; position < n; position++) {
+            foldOf[order[position]] = position % k;
+        }
+        return foldOf;
+    }
+
+    private static double standardDeviation(double[] values) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double mean = Arrays.stream(values).average().orElse(0);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    private static String equation(ModelSelection.Candidate candidate) {
+        RegressionCoefficients coefficients = candidate.getCoefficients();
+        double intercept = candidate.getIntercept();
+        return switch (Candidate.valueOf(candidate.getName().toUpperCase())) {
+            case KM -> ClosedFormRegression.equation(ClosedFormRegression.CAR, intercept, coefficients.getKilometrage(), 0.0);
+            case KM_TONNAGE -> ClosedFormRegression.equation(ClosedFormRegression.TRUCK, intercept,
+                coefficients.getKilometrage(), coefficients.getTonnage());
+            case KM_TONNAGE_INTERACTION -> String.format(
+                "Consommation = %.4f * kilométrage %s %.4f * tonnage %s %.6f * kilométrage * tonnage %s %.2f",
+                coefficients.getKilometrage(),
+                coefficients.getTonnage() >= 0 ? "+" : "-",
+                Math.abs(coefficients.getTonnage()),
+                coefficients.getInteraction() >= 0 ? "+" : "-",
+                Math.abs(coefficients.getInteraction()),
+                intercept >= 0 ? "+" : "-",
+                Math.abs(intercept));
+        };
+    }
+
+    /**
+     * Monthly points shared by every candidate: months with kilometrage, and with tonnage
+     * too when the scope carries tonnage (the points of the SER truck model)
+     */
+    private record Points(double[] kilometrage, double[] tonnage, double[] consommation) {
+
+        static Points of(List<MonthlyData> months) {
+            boolean hasTonnage = months.stream().anyMatch(month -> month.getTonnage() > 0);
+            List<MonthlyData> points = months.stream()
+                .filter(month -> month.getKilometrage() > 0 && (!hasTonnage || month.getTonnage() > 0))
+                .toList();
+            double[] kilometrage = new double[points.size()];
+            double[] tonnage = new double[points.size()];
+            double[] consommation = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                kilometrage[i] = points.get(i).getKilometrage();
+                tonnage[i] = points.get(i).getTonnage() / 1000.0;
+                consommation[i] = points.get(i).getConsommation();
+            }
+            return new Points(kilometrage, tonnage, consommation);
+        }
+
+        int size() {
+            return consommation.length;
+        }
+    }
+}
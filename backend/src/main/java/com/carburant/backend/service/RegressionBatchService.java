@@ -0,0 +1,279 @@
+package com.carburant.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.MonthlyData;
+import com.carburant.backend.model.RegressionBatchReport;
+import com.carburant.backend.model.RegressionDiagnostics;
+import com.carburant.backend.model.RegressionResult;
+import com.carburant.backend.model.VehicleRecord;
+import com.mongodb.bulk.BulkWriteResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refits the SER equation of every (vehicleType, year, region) combination in one run,
+ * plus the all-regions equation of every (vehicleType, year).
+ *
+ * The monthly totals of all combinations come from a single aggregation over
+ * vehicle_data, the fits run in parallel on the regression pool and the results are
+ * upserted into regression_results with one unordered bulk write. Each combination
+ * keeps the id of its existing result, so lookups and links to it stay valid.
+ */
+@Slf4j
+@Service
+public class RegressionBatchService {
+
+    private final MongoTemplate mongoTemplate;
+    private final RegressionService regressionService;
+    private final DataVersionService dataVersionService;
+    private final ForkJoinPool regressionPool;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RegressionBatchService(
+            MongoTemplate mongoTemplate,
+            RegressionService regressionService,
+            DataVersionService dataVersionService,
+            @Qualifier("regressionPool") ForkJoinPool regressionPool,
+            MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.regressionService = regressionService;
+        this.dataVersionService = dataVersionService;
+        this.regressionPool = regressionPool;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Refit and store the equations of all combinations present in vehicle_data
+     *
+     * @return The run report, or null if another run is in progress
+     */
+    public RegressionBatchReport run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Batch regression is already running");
+            return null;
+        }
+        try {
+            RegressionBatchReport report = new RegressionBatchReport();
+            report.setParallelism(regressionPool.getParallelism());
+
+            long start = System.nanoTime();
+            List<Dataset> datasets = loadDatasets();
+            report.setAggregationMillis(elapsedMillis(start));
+            report.setCombinations(datasets.size());
+
+            start = System.nanoTime();
+            List<Fit> fits = regressionPool.submit(() -> datasets.parallelStream().map(this::fit).toList()).join();
+            report.setFitMillis(elapsedMillis(start));
+
+            List<RegressionResult> results = new ArrayList<>();
+            for (Fit fit : fits) {
+                report.getFits().add(fit.timing());
+                switch (fit.timing().getStatus()) {
+                    case "fitted" -> {
+                        report.setFitted(report.getFitted() + 1);
+                        results.add(fit.result());
+                    }
+                    case "failed" -> report.setFailed(report.getFailed() + 1);
+                    default -> report.setSkipped(report.getSkipped() + 1);
+                }
+            }
+
+            start = System.nanoTime();
+            report.setResultsWritten(write(results));
+            report.setWriteMillis(elapsedMillis(start));
+            report.setFinishedAt(LocalDateTime.now());
+            log.info("Batch regression: {} combinations, {} fitted, {} failed, {} skipped "
+                    + "(aggregation {} ms, fits {} ms on {} threads, write {} ms)",
+                report.getCombinations(), report.getFitted(), report.getFailed(), report.getSkipped(),
+                report.getAggregationMillis(), report.getFitMillis(), report.getParallelism(), report.getWriteMillis());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Monthly totals of every combination, in one pass over vehicle_data. Each type
+     * and year also gets a combination without region, summed over all regions: it is
+     * the result used when no region is given. Records without a region only count
+     * towards that one.
+     */
+    private List<Dataset> loadDatasets() {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.group("type", "year", "region", "mois")
+                .sum("kilometrage").as("kilometrage")
+                .sum("consommationL").as("consommation")
+                .sum("produitsTonnes").as("tonnage")
+                .sum(ArithmeticOperators.Multiply.valueOf("ipeL100km").multiplyBy("kilometrage")).as("reference"),
+            Aggregation.sort(Sort.by("_id.type", "_id.year", "_id.region", "_id.mois")))
+            .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        Map<List<String>, Dataset> datasets = new LinkedHashMap<>();
+        Map<List<String>, Map<String, double[]>> allRegions = new LinkedHashMap<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, VehicleRecord.class, Document.class)) {
+            Document key = group.get("_id", Document.class);
+            String type = Objects.toString(key.get("type"), null);
+            String year = Objects.toString(key.get("year"), null);
+            String region = Objects.toString(key.get("region"), null);
+            String month = Objects.toString(key.get("mois"), null);
+            if (type == null || year == null || month == null) {
+                continue;
+            }
+            double[] totals = {
+                ((Number) group.get("kilometrage")).doubleValue(),
+                ((Number) group.get("consommation")).doubleValue(),
+                ((Number) group.get("tonnage")).doubleValue(),
+                ((Number) group.get("reference")).doubleValue()
+            };
+            allRegions.computeIfAbsent(Arrays.asList(type, year), k -> new TreeMap<>())
+                .merge(month, totals.clone(), RegressionBatchService::add);
+            if (region == null) {
+                continue;
+            }
+            datasets.computeIfAbsent(Arrays.asList(type, year, region), k -> new Dataset(type, year, region))
+                .months().add(monthlyData(month, year, region, totals));
+        }
+        allRegions.forEach((key, months) -> {
+            Dataset dataset = new Dataset(key.get(0), key.get(1), null);
+            months.forEach((month, totals) -> dataset.months().add(monthlyData(month, dataset.year(), null, totals)));
+            datasets.put(Arrays.asList(dataset.vehicleType(), dataset.year(), null), dataset);
+        });
+        return new ArrayList<>(datasets.values());
+    }
+
+    /**
+     * Same totals as MonthlyData.fromVehicleRecords, with IPE in L/100km
+     *
+     * @param totals Kilometrage, consumption, tonnage and the km-weighted IPE sum
+     */
+    private static MonthlyData monthlyData(String month, String year, String region, double[] totals) {
+        double consommation = totals[1];
+        double reference = totals[3] / 100;
+        return MonthlyData.builder()
+            .month(month)
+            .year(year)
+            .region(region)
+            .kilometrage(totals[0])
+            .consommation(consommation)
+            .tonnage(totals[2])
+            .referenceConsommation(reference)
+            .targetConsommation(reference * 0.95)
+            .improvementPercentage((reference - consommation) / reference * 100)
+            .build();
+    }
+
+    private static double[] add(double[] totals, double[] other) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += other[i];
+        }
+        return totals;
+    }
+
+    private Fit fit(Dataset dataset) {
+        RegressionBatchReport.FitTiming timing = new RegressionBatchReport.FitTiming(dataset.vehicleType(),
+            dataset.year(), dataset.region(), RegressionService.modelType(dataset.vehicleType()), dataset.months().size(), 0, null, null);
+        if (timing.getModel() == null) {
+            timing.setStatus("skipped");
+            timing.setError("No SER model for vehicle type " + dataset.vehicleType());
+            return new Fit(timing, null);
+        }
+
+        long start = System.nanoTime();
+        RegressionResult result = null;
+        try {
+            result = regressionService.computeRegression(timing.getModel(), dataset.months());
+            result.setVehicleType(dataset.vehicleType());
+            result.setYear(dataset.year());
+            result.setRegion(dataset.region());
+            timing.setStatus("fitted");
+        } catch (RuntimeException e) {
+            timing.setStatus("failed");
+            timing.setError(e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        timing.setMillis(elapsed / 1_000_000.0);
+        Timer.builder("energix.regression.batch.fit")
+            .description("Time taken by one fit of the batch regression job")
+            .tag("model", timing.getModel())
+            .tag("status", timing.getStatus())
+            .register(meterRegistry)
+            .record(elapsed, TimeUnit.NANOSECONDS);
+        return new Fit(timing, result);
+    }
+
+    /**
+     * Upsert the results, reusing the id of the stored result of each combination.
+     * Results are matched on the same key as RegressionService uses: model type,
+     * vehicle type as read from the sheets, year and region. "Camions" and "CAMION"
+     * share a model but are separate combinations, and matching them on the model
+     * alone would write both fits to the same document.
+     */
+    private long write(List<RegressionResult> results) {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        Query existingQuery = new Query().with(Sort.by("_id"));
+        existingQuery.fields().include("type", "vehicleType", "year", "region");
+        Map<List<String>, String> existingIds = new HashMap<>();
+        for (Document existing : mongoTemplate.find(existingQuery, Document.class,
+                mongoTemplate.getCollectionName(RegressionResult.class))) {
+            existingIds.putIfAbsent(Arrays.asList(existing.getString("type"), existing.getString("vehicleType"),
+                Objects.toString(existing.get("year"), null), existing.getString("region")), existing.get("_id").toString());
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RegressionResult.class);
+        BulkOperations diagnostics = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RegressionDiagnostics.class);
+        for (RegressionResult result : results) {
+            String id = existingIds.get(Arrays.asList(result.getType(), result.getVehicleType(), result.getYear(),
+                result.getRegion()));
+            result.setId(Objects.requireNonNullElse(id, result.getId()));
+            Query byId = Query.query(Criteria.where("_id").is(result.getId()));
+            bulk.replaceOne(byId, result, FindAndReplaceOptions.options().upsert());
+            diagnostics.replaceOne(byId, RegressionDiagnostics.of(result), FindAndReplaceOptions.options().upsert());
+        }
+        BulkWriteResult written = bulk.execute();
+        diagnostics.execute();
+        dataVersionService.bumpAll(DataVersionService.REGRESSION);
+        return written.getModifiedCount() + written.getUpserts().size();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private record Dataset(String vehicleType, String year, String region, List<MonthlyData> months) {
+        Dataset(String vehicleType, String year, String region) {
+            this(vehicleType, year, region, new ArrayList<>());
+        }
+    }
+
+    private record Fit(RegressionBatchReport.FitTiming timing, RegressionResult result) {
+    }
+}
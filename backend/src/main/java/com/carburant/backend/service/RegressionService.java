@@ -1,29 +1,41 @@
 package com.carburant.backend.service;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
-import org.apache.commons.math3.distribution.FDistribution;
-import org.apache.commons.math3.distribution.TDistribution;
-import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.bson.Document;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.carburant.backend.config.CacheConfig;
 import com.carburant.backend.model.MonthlyData;
 import com.carburant.backend.model.RegressionCoefficients;
+import com.carburant.backend.model.RegressionDiagnostics;
+import com.carburant.backend.model.RegressionMoments;
 import com.carburant.backend.model.RegressionResult;
 import com.carburant.backend.model.VehicleRecord;
 import com.carburant.backend.repository.RegressionRepository;
+import com.carburant.backend.utils.ClosedFormRegression;
 
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class RegressionService {
     private final RegressionRepository regressionRepository;
     private final ValidationService validationService;
+    private final DataVersionService dataVersionService;
+    private final MongoTemplate mongoTemplate;
 
     public List<RegressionResult> getAllRegressionResults() {
         return regressionRepository.findAll();
@@ -33,27 +45,122 @@ public class RegressionService {
         return regressionRepository.findById(id);
     }
 
+    /**
+     * Result fitted on all regions
+     *
+     * @see #getRegressionResultByTypeAndYearAndRegion(String, String, String)
+     */
+    @Cacheable(cacheNames = CacheConfig.REGRESSION_RESULTS, keyGenerator = "regressionKeyGenerator")
     public Optional<RegressionResult> getRegressionResultByTypeAndYear(String type, String year) {
-        return regressionRepository.findByTypeAndYear(type, year);
+        return findResult(type, year, null);
     }
 
+    /**
+     * Stored result of a combination. The type may be a model type ("CAMION") or a
+     * vehicle type as read from the sheets ("Camions"). Results are stored under their
+     * model type and several vehicle types can share one, so the result of the requested
+     * vehicle type is preferred, then one of the same type in another case, then the
+     * lowest id. A null region is the result fitted on all regions.
+     */
+    @Cacheable(cacheNames = CacheConfig.REGRESSION_RESULTS, keyGenerator = "regressionKeyGenerator")
     public Optional<RegressionResult> getRegressionResultByTypeAndYearAndRegion(String type, String year, String region) {
-        return regressionRepository.findByTypeAndYearAndRegion(type, year, region);
+        return findResult(type, year, region);
+    }
+
+    /**
+     * Result stored for exactly this vehicle type, year and region: the document that
+     * fitting the combination again replaces
+     */
+    public Optional<RegressionResult> getStoredResult(String vehicleType, String year, String region) {
+        return storedResult(storedType(vehicleType), vehicleType, year, region);
+    }
+
+    /**
+     * Type a result is stored under: its SER model, or the vehicle type itself when it has none
+     */
+    public static String storedType(String vehicleType) {
+        String model = modelType(vehicleType);
+        return model != null ? model : vehicleType;
+    }
+
+    private Optional<RegressionResult> findResult(String type, String year, String region) {
+        Query query = Query.query(Criteria.where("type").is(storedType(type)).and("year").is(year).and("region").is(region))
+            .with(Sort.by("_id"));
+        return mongoTemplate.find(query, RegressionResult.class).stream()
+            .min(Comparator.comparingInt(result -> matchRank(result, type)));
+    }
+
+    private static int matchRank(RegressionResult result, String type) {
+        if (type.equals(result.getVehicleType())) {
+            return 0;
+        }
+        return type.equalsIgnoreCase(result.getVehicleType()) ? 1 : 2;
+    }
+
+    private Optional<RegressionResult> storedResult(String type, String vehicleType, String year, String region) {
+        Query query = Query.query(Criteria.where("type").is(type).and("vehicleType").is(vehicleType)
+                .and("year").is(year).and("region").is(region))
+            .with(Sort.by("_id"));
+        return Optional.ofNullable(mongoTemplate.findOne(query, RegressionResult.class));
+    }
+
+    public Optional<RegressionDiagnostics> getDiagnostics(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, RegressionDiagnostics.class));
+    }
+
+    /**
+     * Copy of a compact result with its residuals, predicted values and coefficient
+     * statistics loaded; the result itself is left as is since it may be cached
+     */
+    public RegressionResult withDiagnostics(RegressionResult result) {
+        return getDiagnostics(result.getId())
+            .map(diagnostics -> diagnostics.applyTo(result))
+            .orElse(result);
     }
 
     public RegressionResult saveRegressionResult(RegressionResult result) {
-        if (result.getId() == null) {
-            result.setId(UUID.randomUUID().toString());
+        boolean isUpdate = result.getId() != null;
+        if (!isUpdate) {
+            // A result saved again for the same combination replaces the stored one instead of adding another
+            result.setId(storedResult(result.getType(), result.getVehicleType(), result.getYear(), result.getRegion())
+                .map(RegressionResult::getId)
+                .orElseGet(() -> UUID.randomUUID().toString()));
+        }
+        RegressionResult saved = regressionRepository.save(result);
+        // An update without arrays (e.g. an edited equation) keeps the stored diagnostics
+        RegressionDiagnostics diagnostics = RegressionDiagnostics.of(saved);
+        if (!diagnostics.isEmpty()) {
+            mongoTemplate.save(diagnostics);
         }
-        return regressionRepository.save(result);
+        if (isUpdate) {
+            dataVersionService.bumpAll(DataVersionService.REGRESSION);
+            return saved;
+        }
+        // Results are looked up both by their model type and by the raw vehicle type
+        dataVersionService.bump(DataVersionService.REGRESSION, saved.getType(), saved.getYear(), saved.getRegion());
+        if (saved.getVehicleType() != null && !saved.getVehicleType().equals(saved.getType())) {
+            dataVersionService.bump(DataVersionService.REGRESSION, saved.getVehicleType(), saved.getYear(), saved.getRegion());
+        }
+        return saved;
     }
 
     public void deleteRegressionResult(String id) {
         regressionRepository.deleteById(id);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), RegressionDiagnostics.class);
+        dataVersionService.bumpAll(DataVersionService.REGRESSION);
     }
 
     public void deleteRegressionResultByTypeAndYear(String type, String year) {
+        Query query = Query.query(Criteria.where("type").is(type).and("year").is(year));
+        query.fields().include("_id");
+        List<Object> ids = mongoTemplate.find(query, Document.class, "regression_results").stream()
+            .map(document -> document.get("_id"))
+            .toList();
         regressionRepository.deleteByTypeAndYear(type, year);
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), RegressionDiagnostics.class);
+        }
+        dataVersionService.bumpAll(DataVersionService.REGRESSION);
     }
 
     public double predictIpeForRecord(List<VehicleRecord> historicalRecords, VehicleRecord currentRecord) {
@@ -65,7 +172,8 @@ public class RegressionService {
                 .build())
             .collect(Collectors.toList());
 
-        RegressionResult result = performRegression("CAMION", monthlyData);
+        // Fit only: a prediction must not store a regression result
+        RegressionResult result = computeRegression("CAMION", monthlyData);
         
         // Calculate predicted IPE using regression coefficients
         RegressionCoefficients coef = result.getCoefficients();
@@ -82,16 +190,30 @@ public class RegressionService {
     }
 
     public RegressionResult performRegression(String type, List<MonthlyData> monthlyData) {
+        // Save to MongoDB and return
+        return saveRegressionResult(computeRegression(type, monthlyData));
+    }
+
+    /**
+     * Validate and fit monthly data without saving the result
+     *
+     * @param type Model type: VOITURE or CAMION
+     */
+    public RegressionResult computeRegression(String type, List<MonthlyData> monthlyData) {
+        // Sheet names vary in case and number ("Voitures", "CAMIONS"); other types go through model selection
+        String model = modelType(type);
+        if (model == null) {
+            throw new IllegalArgumentException("Type de véhicule non supporté: " + type);
+        }
+
         // Validate input data
-        List<String> warnings = validationService.validateData(monthlyData, type);
+        List<String> warnings = validationService.validateData(monthlyData, model);
         
         RegressionResult result;
-        if ("VOITURE".equals(type)) {
+        if (ClosedFormRegression.CAR.equals(model)) {
             result = performCarRegression(monthlyData);
-        } else if ("CAMION".equals(type)) {
-            result = performTruckRegression(monthlyData);
         } else {
-            throw new IllegalArgumentException("Type de véhicule non supporté: " + type);
+            result = performTruckRegression(monthlyData);
         }
 
         // Add validation results
@@ -110,8 +232,20 @@ public class RegressionService {
             result.setRegion(sample.getRegion());
         }
         
-        // Save to MongoDB and return
-        return saveRegressionResult(result);
+        return result;
+    }
+
+    /**
+     * SER model of a vehicle type: VOITURE or CAMION, or null when the type has none
+     */
+    public static String modelType(String type) {
+        if ("CAMION".equalsIgnoreCase(type) || "CAMIONS".equalsIgnoreCase(type)) {
+            return ClosedFormRegression.TRUCK;
+        }
+        if ("VOITURE".equalsIgnoreCase(type) || "VOITURES".equalsIgnoreCase(type)) {
+            return ClosedFormRegression.CAR;
+        }
+        return null;
     }
 
     private void calculateAdditionalMetrics(RegressionResult result) {
@@ -156,111 +290,7 @@ public class RegressionService {
     }
 
     private RegressionResult performCarRegression(List<MonthlyData> monthlyData) {
-        double[][] x = new double[monthlyData.size()][1];
-        double[] y = new double[monthlyData.size()];
-
-        for (int i = 0; i < monthlyData.size(); i++) {
-            MonthlyData data = monthlyData.get(i);
-            x[i][0] = data.getKilometrage();
-            y[i] = data.getConsommation();
-        }
-
-        OLSMultipleLinearRegression regression = new OLSMultipleLinearRegression();
-        regression.newSampleData(y, x);
-
-        double[] coefficients = regression.estimateRegressionParameters();
-        double rSquared = regression.calculateRSquared();
-        double adjustedRSquared = regression.calculateAdjustedRSquared();
-        
-        // Calculate predicted values and residuals
-        double[] predictedValues = new double[y.length];
-        double[] residuals = new double[y.length];
-        for (int i = 0; i < y.length; i++) {
-            predictedValues[i] = coefficients[0] + coefficients[1] * x[i][0];
-            residuals[i] = y[i] - predictedValues[i];
-        }
-
-        // Calculate standard errors and t-stats
-        double[][] covMatrix = regression.estimateRegressionParametersVariance();
-        double[] standardErrors = new double[coefficients.length];
-        double[] tStats = new double[coefficients.length];
-        double[] pValues = new double[coefficients.length];
-        double[] lowerConfidence = new double[coefficients.length];
-        double[] upperConfidence = new double[coefficients.length];
-
-        int df = y.length - coefficients.length;
-        TDistribution tDist = new TDistribution(df);
-        double tCritical = tDist.inverseCumulativeProbability(0.975);
-
-        for (int i = 0; i < coefficients.length; i++) {
-            standardErrors[i] = Math.sqrt(covMatrix[i][i]);
-            tStats[i] = coefficients[i] / standardErrors[i];
-            pValues[i] = 2 * (1 - tDist.cumulativeProbability(Math.abs(tStats[i])));
-            lowerConfidence[i] = coefficients[i] - tCritical * standardErrors[i];
-            upperConfidence[i] = coefficients[i] + tCritical * standardErrors[i];
-        }
-
-        // Calculate ANOVA statistics
-        double meanY = 0;
-        for (double value : y) {
-            meanY += value;
-        }
-        meanY /= y.length;
-
-        double totalSS = 0;
-        double regressionSS = 0;
-        double errorSS = 0;
-
-        for (int i = 0; i < y.length; i++) {
-            totalSS += Math.pow(y[i] - meanY, 2);
-            regressionSS += Math.pow(predictedValues[i] - meanY, 2);
-            errorSS += Math.pow(residuals[i], 2);
-        }
-
-        double regressionMS = regressionSS / 1;
-        double errorMS = errorSS / (y.length - 2);
-        double fStat = regressionMS / errorMS;
-
-        FDistribution fDist = new FDistribution(1, y.length - 2);
-        double significanceF = 1 - fDist.cumulativeProbability(fStat);
-
-        String equation = String.format(
-            "Consommation = %.4f * kilométrage %s %.2f",
-            coefficients[1], 
-            coefficients[0] >= 0 ? "+" : "-",
-            Math.abs(coefficients[0])
-        );
- 
-        RegressionCoefficients regressionCoefficients = RegressionCoefficients.builder()
-            .kilometrage(coefficients[1])
-            .tonnage(0.0)
-            .build();
-
-        return RegressionResult.builder()
-            .id(UUID.randomUUID().toString())
-            .type("VOITURE")
-            .regressionEquation(equation)
-            .coefficients(regressionCoefficients)
-            .intercept(coefficients[0])
-            .multipleR(Math.sqrt(rSquared))
-            .rSquared(rSquared)
-            .adjustedRSquared(adjustedRSquared)
-            .standardError(Math.sqrt(errorMS))
-            .observations(y.length)
-            .degreesOfFreedom(df)
-            .sumOfSquares(totalSS)
-            .meanSquare(regressionMS)
-            .fStatistic(fStat)
-            .significanceF(significanceF)
-            .standardErrors(standardErrors)
-            .tStats(tStats)
-            .pValues(pValues)
-            .lowerConfidence(lowerConfidence)
-            .upperConfidence(upperConfidence)
-            .predictedValues(predictedValues)
-            .residuals(residuals)
-            .mse(errorMS)
-            .build();
+        return fitMonthlyData(ClosedFormRegression.CAR, monthlyData);
     }
 
     private RegressionResult performTruckRegression(List<MonthlyData> monthlyData) {
@@ -272,137 +302,45 @@ public class RegressionService {
             throw new IllegalArgumentException("No valid data points for regression analysis");
         }
 
-        double[][] x = new double[validData.size()][2];
-        double[] y = new double[validData.size()];
-
-        for (int i = 0; i < validData.size(); i++) {
-            MonthlyData data = validData.get(i);
-            x[i][0] = data.getKilometrage();
-            x[i][1] = data.getTonnage() / 1000.0;
-            y[i] = data.getConsommation();
-        }
-
-        OLSMultipleLinearRegression regression = new OLSMultipleLinearRegression();
-        regression.newSampleData(y, x);
-
-        double[] coefficients = regression.estimateRegressionParameters();
-        double rSquared = regression.calculateRSquared();
-        double adjustedRSquared = regression.calculateAdjustedRSquared();
-
-        double[] predictedValues = new double[y.length];
-        double[] residuals = new double[y.length];
-        for (int i = 0; i < y.length; i++) {
-            predictedValues[i] = coefficients[0] + coefficients[1] * x[i][0] + coefficients[2] * x[i][1];
-            residuals[i] = y[i] - predictedValues[i];
-        }
-
-        double[][] covMatrix = regression.estimateRegressionParametersVariance();
-        double[] standardErrors = new double[coefficients.length];
-        double[] tStats = new double[coefficients.length];
-        double[] pValues = new double[coefficients.length];
-        double[] lowerConfidence = new double[coefficients.length];
-        double[] upperConfidence = new double[coefficients.length];
-
-        int df = y.length - coefficients.length;
-        TDistribution tDist = new TDistribution(df);
-        double tCritical = tDist.inverseCumulativeProbability(0.975);
-
-        for (int i = 0; i < coefficients.length; i++) {
-            standardErrors[i] = Math.sqrt(covMatrix[i][i]);
-            tStats[i] = coefficients[i] / standardErrors[i];
-            pValues[i] = 2 * (1 - tDist.cumulativeProbability(Math.abs(tStats[i])));
-            lowerConfidence[i] = coefficients[i] - tCritical * standardErrors[i];
-            upperConfidence[i] = coefficients[i] + tCritical * standardErrors[i];
-        }
+        return fitMonthlyData(ClosedFormRegression.TRUCK, validData);
+    }
 
-        double meanY = 0;
-        for (double value : y) {
-            meanY += value;
+    /**
+     * Fit from the sufficient statistics of the monthly points, then compute the per-month
+     * predicted values and residuals (tonnage is expressed in thousands, as in the equation)
+     */
+    private RegressionResult fitMonthlyData(String type, List<MonthlyData> data) {
+        boolean truck = ClosedFormRegression.TRUCK.equals(type);
+        RegressionMoments moments = new RegressionMoments();
+        for (MonthlyData month : data) {
+            moments.add(month.getKilometrage(), truck ? month.getTonnage() / 1000.0 : 0.0, month.getConsommation());
         }
-        meanY /= y.length;
 
-        double totalSS = 0;
-        double regressionSS = 0;
-        double errorSS = 0;
-
-        for (int i = 0; i < y.length; i++) {
-            totalSS += Math.pow(y[i] - meanY, 2);
-            regressionSS += Math.pow(predictedValues[i] - meanY, 2);
-            errorSS += Math.pow(residuals[i], 2);
+        RegressionResult result = ClosedFormRegression.fit(moments, type);
+        double kilometrage = result.getCoefficients().getKilometrage();
+        double tonnage = result.getCoefficients().getTonnage();
+        double[] predictedValues = new double[data.size()];
+        double[] residuals = new double[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            MonthlyData month = data.get(i);
+            predictedValues[i] = result.getIntercept() + kilometrage * month.getKilometrage()
+                + (truck ? tonnage * month.getTonnage() / 1000.0 : 0.0);
+            residuals[i] = month.getConsommation() - predictedValues[i];
         }
-
-        double regressionMS = regressionSS / 2;
-        double errorMS = errorSS / (y.length - 3);
-        double fStat = regressionMS / errorMS;
-
-        FDistribution fDist = new FDistribution(2, y.length - 3);
-        double significanceF = 1 - fDist.cumulativeProbability(fStat);
-
-        String equation = String.format(
-            "Consommation = %.4f * kilométrage %s %.4f * tonnage %s %.2f",
-            coefficients[1],
-            coefficients[2] >= 0 ? "+" : "-",
-            Math.abs(coefficients[2]),
-            coefficients[0] >= 0 ? "+" : "-",
-            Math.abs(coefficients[0])
-        );
-
-        RegressionCoefficients regressionCoefficients = RegressionCoefficients.builder()
-            .kilometrage(coefficients[1])
-            .tonnage(coefficients[2])
-            .build();
-
-        return RegressionResult.builder()
-            .id(UUID.randomUUID().toString())
-            .type("CAMION")
-            .regressionEquation(equation)
-            .coefficients(regressionCoefficients)
-            .intercept(coefficients[0])
-            .multipleR(Math.sqrt(rSquared))
-            .rSquared(rSquared)
-            .adjustedRSquared(adjustedRSquared)
-            .standardError(Math.sqrt(errorMS))
-            .observations(y.length)
-            .degreesOfFreedom(df)
-            .sumOfSquares(totalSS)
-            .meanSquare(regressionMS)
-            .fStatistic(fStat)
-            .significanceF(significanceF)
-            .standardErrors(standardErrors)
-            .tStats(tStats)
-            .pValues(pValues)
-            .lowerConfidence(lowerConfidence)
-            .upperConfidence(upperConfidence)
-            .predictedValues(predictedValues)
-            .residuals(residuals)
-            .mse(errorMS)
-            .build();
+        result.setPredictedValues(predictedValues);
+        result.setResiduals(residuals);
+        return result;
     }
 
-    @PostConstruct
+    /**
+     * Rewrite the equations stored in an older display format
+     */
     public void updateExistingEquations() {
         List<RegressionResult> results = getAllRegressionResults();
         for (RegressionResult result : results) {
             RegressionCoefficients coef = result.getCoefficients();
-            String newEquation;
-            
-            if ("VOITURE".equals(result.getType())) {
-                newEquation = String.format(
-                    "Consommation = %.4f * kilométrage %s %.2f",
-                    coef.getKilometrage(),
-                    result.getIntercept() >= 0 ? "+" : "-",
-                    Math.abs(result.getIntercept())
-                );
-            } else {
-                newEquation = String.format(
-                    "Consommation = %.4f * kilométrage %s %.4f * tonnage %s %.2f",
-                    coef.getKilometrage(),
-                    coef.getTonnage() >= 0 ? "+" : "-",
-                    Math.abs(coef.getTonnage()),
-                    result.getIntercept() >= 0 ? "+" : "-",
-                    Math.abs(result.getIntercept())
-                );
-            }
+            String newEquation = ClosedFormRegression.equation(result.getType(), result.getIntercept(),
+                coef.getKilometrage(), coef.getTonnage());
             
             // Only update if equation format has changed
             if (!newEquation.equals(result.getRegressionEquation())) {
@@ -411,4 +349,28 @@ public class RegressionService {
             }
         }
     }
+
+    /**
+     * Move the arrays of results saved before regression_diagnostics existed out of
+     * regression_results, so that every read of an equation stays compact
+     */
+    public void splitLegacyDiagnostics() {
+        List<Criteria> anyField = RegressionDiagnostics.FIELDS.stream()
+            .map(field -> Criteria.where(field).exists(true))
+            .toList();
+        Query legacy = Query.query(new Criteria().orOperator(anyField));
+        RegressionDiagnostics.FIELDS.forEach(legacy.fields()::include);
+        List<Document> documents = mongoTemplate.find(legacy, Document.class, "regression_results");
+        if (documents.isEmpty()) {
+            return;
+        }
+        for (Document document : documents) {
+            mongoTemplate.save(document, "regression_diagnostics");
+        }
+        Update unset = new Update();
+        RegressionDiagnostics.FIELDS.forEach(unset::unset);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(documents.stream().map(d -> d.get("_id")).toList())),
+            unset, "regression_results");
+        log.info("Moved the diagnostics of {} regression results to regression_diagnostics", documents.size());
+    }
 }
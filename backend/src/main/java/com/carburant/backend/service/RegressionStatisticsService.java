@@ -0,0 +1,285 @@
+package com.carburant.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.MonthlyData;
+import com.carburant.backend.model.RegressionMoments;
+import com.carburant.backend.model.RegressionResult;
+import com.carburant.backend.model.RegressionStatistics;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.ClosedFormRegression;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the SER regression sufficient statistics of every (vehicle type, year, region)
+ * scope, and of all regions of each type and year, up to date as records are written.
+ *
+ * Statistics are loaded (or rebuilt with one aggregation) the first time a scope is
+ * touched, then updated in memory in O(1) per record and written to
+ * regression_statistics on flush, once per batch of records. Bulk deletes invalidate
+ * the affected scopes, which are rebuilt on next use. A record write holds the locks
+ * of its scopes until its change is applied; a scope is loaded by one caller at a time
+ * and invalidations wait for those locks, so a scope never counts a record twice.
+ */
+@Slf4j
+@Service
+public class RegressionStatisticsService {
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, RegressionStatistics> loaded = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public RegressionStatisticsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Write a record and apply the change to the statistics of its scopes, atomically
+     * with respect to other writes, rebuilds and invalidations of those scopes: each
+     * scope is loaded (or rebuilt from vehicle_data) before the write, and its lock is
+     * held from the write until the change is applied, so a scope never counts a record
+     * twice or misses it
+     *
+     * @param previous The record as stored before the write (null for an insert)
+     * @param current The record as it will be stored (null for a delete)
+     * @param write The database write
+     * @return The result of the write
+     */
+    public <T> T write(VehicleRecord previous, VehicleRecord current, Supplier<T> write) {
+        // Sorted by key: locks are always taken in the same order, so concurrent writes cannot deadlock
+        Map<String, Scope> scopes = new TreeMap<>();
+        for (VehicleRecord record : new VehicleRecord[] { previous, current }) {
+            if (record != null && hasScope(record)) {
+                for (String region : regions(record)) {
+                    scopes.put(RegressionStatistics.key(record.getType(), record.getYear(), region),
+                        new Scope(record.getType(), record.getYear(), region));
+                }
+            }
+        }
+        AtomicReference<T> result = new AtomicReference<>();
+        Runnable change = () -> {
+            result.set(write.get());
+            if (previous != null && hasScope(previous)) {
+                apply(previous, -1);
+            }
+            if (current != null && hasScope(current)) {
+                apply(current, 1);
+            }
+        };
+        List<RegressionStatistics> locked;
+        do {
+            locked = scopes.values().stream()
+                .map(scope -> statistics(scope.type(), scope.year(), scope.region()))
+                .toList();
+        } while (!runLocked(locked, 0, change));
+        return result.get();
+    }
+
+    /**
+     * Run a change holding the locks of the given statistics
+     *
+     * @return false, without running the change, if one of them was unloaded meanwhile
+     */
+    private boolean runLocked(List<RegressionStatistics> locked, int index, Runnable change) {
+        if (index == locked.size()) {
+            change.run();
+            return true;
+        }
+        RegressionStatistics statistics = locked.get(index);
+        synchronized (statistics) {
+            return loaded.get(statistics.getId()) == statistics && runLocked(locked, index + 1, change);
+        }
+    }
+
+    /**
+     * Persist the statistics changed since the last flush
+     */
+    public void flush() {
+        for (String key : List.copyOf(dirty)) {
+            dirty.remove(key);
+            RegressionStatistics statistics = loaded.get(key);
+            if (statistics != null) {
+                synchronized (statistics) {
+                    // Skip scopes unloaded since: their statistics must not be stored again
+                    if (loaded.get(key) == statistics) {
+                        mongoTemplate.save(statistics);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the statistics of a scope and of its all-regions scope after a bulk write
+     */
+    public void invalidate(String type, String year, String region) {
+        List<String> keys = List.of(RegressionStatistics.key(type, year, region), RegressionStatistics.key(type, year, null));
+        keys.forEach(this::unload);
+    }
+
+    /**
+     * Drop the statistics of every scope of a vehicle type after a bulk write
+     */
+    public void invalidateType(String type) {
+        String prefix = type + '|';
+        loaded.keySet().stream()
+            .filter(key -> key.startsWith(prefix))
+            .toList()
+            .forEach(this::unload);
+        mongoTemplate.remove(Query.query(Criteria.where("vehicleType").is(type)), RegressionStatistics.class);
+    }
+
+    /**
+     * Fit a scope's SER regression from its statistics, without reading vehicle_data
+     *
+     * @param region The region, or null for all regions
+     * @param model VOITURE or CAMION; defaults to CAMION for truck types and VOITURE otherwise
+     * @return The fit (not persisted), or empty if the scope has no data
+     * @throws IllegalArgumentException If there are too few months or the data is singular
+     */
+    public Optional<RegressionResult> fit(String type, String year, String region, String model) {
+        RegressionStatistics statistics = statistics(type, year, region);
+        String modelType = model != null ? model.toUpperCase() : defaultModel(type);
+        RegressionMoments moments;
+        synchronized (statistics) {
+            if (statistics.getMonths().isEmpty()) {
+                return Optional.empty();
+            }
+            moments = (ClosedFormRegression.TRUCK.equals(modelType) ? statistics.getTruckModel() : statistics.getCarModel()).copy();
+        }
+        RegressionResult result = ClosedFormRegression.fit(moments, modelType);
+        result.setVehicleType(type);
+        result.setYear(year);
+        result.setRegion(region);
+        return Optional.of(result);
+    }
+
+    /**
+     * Monthly totals of a scope, without reading vehicle_data
+     *
+     * @param region The region, or null for all regions
+     */
+    public List<MonthlyData> monthlyData(String type, String year, String region) {
+        RegressionStatistics statistics = statistics(type, year, region);
+        synchronized (statistics) {
+            return statistics.getMonths().stream()
+                .map(month -> MonthlyData.builder()
+                    .month(month.getMonth())
+                    .year(year)
+                    .region(region)
+                    .kilometrage(month.getKilometrage())
+                    .tonnage(month.getTonnage())
+                    .consommation(month.getConsommation())
+                    .build())
+                .toList();
+        }
+    }
+
+    /**
+     * Recompute a scope from vehicle_data: one aggregation of the monthly totals
+     */
+    public RegressionStatistics rebuild(String type, String year, String region) {
+        Criteria criteria = Criteria.where("type").is(type).and("year").is(year);
+        if (region != null) {
+            criteria.and("region").is(region);
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(criteria),
+            Aggregation.group("mois")
+                .count().as("records")
+                .sum("kilometrage").as("kilometrage")
+                .sum("produitsTonnes").as("tonnage")
+                .sum("consommationL").as("consommation"));
+        List<RegressionStatistics.MonthTotals> months = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, VehicleRecord.class, Document.class)) {
+            months.add(new RegressionStatistics.MonthTotals(
+                group.get("_id") == null ? "" : group.get("_id").toString(),
+                ((Number) group.get("records")).longValue(),
+                ((Number) group.get("kilometrage")).doubleValue(),
+                ((Number) group.get("tonnage")).doubleValue(),
+                ((Number) group.get("consommation")).doubleValue()));
+        }
+        RegressionStatistics statistics = new RegressionStatistics(type, year, region);
+        statistics.reset(months);
+        log.debug("Rebuilt regression statistics {} from {} months", statistics.getId(), months.size());
+        return statistics;
+    }
+
+    public static String defaultModel(String type) {
+        return "CAMION".equalsIgnoreCase(type) || "CAMIONS".equalsIgnoreCase(type)
+            ? ClosedFormRegression.TRUCK
+            : ClosedFormRegression.CAR;
+    }
+
+    private void apply(VehicleRecord record, int sign) {
+        for (String region : regions(record)) {
+            RegressionStatistics statistics = loaded.get(RegressionStatistics.key(record.getType(), record.getYear(), region));
+            synchronized (statistics) {
+                statistics.apply(record.getMois(), record.getKilometrage(), record.getProduitsTonnes(),
+                    record.getConsommationL(), sign);
+            }
+            dirty.add(statistics.getId());
+        }
+    }
+
+    /**
+     * Loaded statistics of a scope. The first use loads or rebuilds it inside
+     * computeIfAbsent, so concurrent callers wait for that one load.
+     */
+    private RegressionStatistics statistics(String type, String year, String region) {
+        return loaded.computeIfAbsent(RegressionStatistics.key(type, year, region), key -> {
+            RegressionStatistics stored = mongoTemplate.findById(key, RegressionStatistics.class);
+            if (stored == null) {
+                stored = rebuild(type, year, region);
+                mongoTemplate.save(stored);
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * Drop a scope, in memory and in regression_statistics. This runs inside compute, so
+     * no load of the scope can start meanwhile, and it waits for the writes that hold the
+     * scope's lock, so their records are applied before the scope is rebuilt.
+     */
+    private void unload(String key) {
+        loaded.compute(key, (id, statistics) -> {
+            if (statistics != null) {
+                synchronized (statistics) {
+                    dirty.remove(id);
+                }
+            } else {
+                dirty.remove(id);
+            }
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), RegressionStatistics.class);
+            return null;
+        });
+    }
+
+    private record Scope(String type, String year, String region) {
+    }
+
+    private static String[] regions(VehicleRecord record) {
+        return record.getRegion() != null ? new String[] { record.getRegion(), null } : new String[] { null };
+    }
+
+    private boolean hasScope(VehicleRecord record) {
+        return record.getType() != null && record.getYear() != null;
+    }
+}
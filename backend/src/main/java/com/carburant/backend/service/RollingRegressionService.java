@@ -0,0 +1,183 @@
+package com.carburant.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.RegressionMoments;
+import com.carburant.backend.model.RegressionResult;
+import com.carburant.backend.model.RegressionTrajectory;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.ClosedFormRegression;
+import com.carburant.backend.utils.MonthOrder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fits the SER equation over windows of consecutive months, across years.
+ *
+ * Rolling windows cover a fixed number of calendar months and slide by one month;
+ * expanding windows start at the first month and grow by one month. The sufficient
+ * statistics are updated as the window moves (the new month is added, the months
+ * leaving a rolling window are removed), so each window costs O(1) instead of a refit
+ * over all of its months.
+ */
+@Slf4j
+@Service
+public class RollingRegressionService {
+
+    public enum WindowMode {
+        ROLLING, EXPANDING
+    }
+
+    private final MongoTemplate mongoTemplate;
+
+    public RollingRegressionService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Coefficient trajectory of a vehicle type
+     *
+     * @param region Region (optional, all regions when null)
+     * @param window Months per rolling window, or months of the first expanding window
+     * @param fromYear First year to include (optional)
+     * @param toYear Last year to include (optional)
+     */
+    public RegressionTrajectory trajectory(String vehicleType, String region, WindowMode mode, int window,
+                                           String fromYear, String toYear) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1 month");
+        }
+        String model = RegressionStatisticsService.defaultModel(vehicleType);
+        boolean truck = ClosedFormRegression.TRUCK.equals(model);
+        List<Month> months = monthlyTotals(vehicleType, region, fromYear, toYear);
+
+        RegressionTrajectory trajectory = new RegressionTrajectory();
+        trajectory.setVehicleType(vehicleType);
+        trajectory.setRegion(region);
+        trajectory.setModel(model);
+        trajectory.setMode(mode.name().toLowerCase());
+        trajectory.setWindow(window);
+        trajectory.setMonths(months.size());
+
+        RegressionMoments moments = new RegressionMoments();
+        Deque<Month> inWindow = new ArrayDeque<>();
+        for (Month month : months) {
+            if (include(month, truck)) {
+                moments.add(month.km(), truck ? month.tonnage() : 0.0, month.consommation());
+            }
+            inWindow.addLast(month);
+            if (mode == WindowMode.ROLLING) {
+                // Calendar months, so a gap in the data shortens the window instead of stretching it
+                while (inWindow.peekFirst().index() <= month.index() - window) {
+                    Month leaving = inWindow.removeFirst();
+                    if (include(leaving, truck)) {
+                        moments.remove(leaving.km(), truck ? leaving.tonnage() : 0.0, leaving.consommation());
+                    }
+                }
+            }
+            if (month.index() - months.get(0).index() + 1 < window) {
+                // The first window is not complete yet
+                continue;
+            }
+
+            try {
+                trajectory.getPoints().add(point(ClosedFormRegression.fit(moments, model),
+                    inWindow.peekFirst().period(), month.period()));
+            } catch (IllegalArgumentException e) {
+                trajectory.setSkippedWindows(trajectory.getSkippedWindows() + 1);
+            }
+        }
+        log.info("Computed {} {} regression windows of {} months for type {} (region: {}), {} skipped",
+            trajectory.getPoints().size(), trajectory.getMode(), window, vehicleType, region, trajectory.getSkippedWindows());
+        return trajectory;
+    }
+
+    private static boolean include(Month month, boolean truck) {
+        // Same points as the yearly model: trucks only use months with distance and tonnage
+        return !truck || (month.km() > 0 && month.tonnage() > 0);
+    }
+
+    private static RegressionTrajectory.Point point(RegressionResult result, int periodFrom, int periodTo) {
+        RegressionTrajectory.Point point = new RegressionTrajectory.Point();
+        point.setPeriodFrom(periodFrom);
+        point.setPeriodTo(periodTo);
+        point.setObservations(result.getObservations());
+        point.setIntercept(result.getIntercept());
+        point.setKilometrage(result.getCoefficients().getKilometrage());
+        point.setTonnage(result.getCoefficients().getTonnage());
+        point.setKilometrageLower(result.getLowerConfidence()[1]);
+        point.setKilometrageUpper(result.getUpperConfidence()[1]);
+        if (result.getLowerConfidence().length > 2) {
+            point.setTonnageLower(result.getLowerConfidence()[2]);
+            point.setTonnageUpper(result.getUpperConfidence()[2]);
+        }
+        point.setRSquared(result.getRSquared());
+        point.setStandardError(result.getStandardError());
+        return point;
+    }
+
+    /**
+     * Monthly totals in chronological order, from one aggregation
+     */
+    private List<Month> monthlyTotals(String vehicleType, String region, String fromYear, String toYear) {
+        Criteria criteria = Criteria.where("type").is(vehicleType);
+        if (region != null) {
+            criteria.and("region").is(region);
+        }
+        if (fromYear != null || toYear != null) {
+            Criteria year = Criteria.where("year");
+            if (fromYear != null) {
+                year.gte(fromYear);
+            }
+            if (toYear != null) {
+                year.lte(toYear);
+            }
+            criteria.andOperator(year);
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(criteria),
+            Aggregation.group("year", "mois")
+                .sum("kilometrage").as("kilometrage")
+                .sum("produitsTonnes").as("tonnage")
+                .sum("consommationL").as("consommation"));
+
+        List<Month> months = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, VehicleRecord.class, Document.class)) {
+            Document key = group.get("_id", Document.class);
+            int period = MonthOrder.period(Objects.toString(key.get("year"), null), Objects.toString(key.get("mois"), null));
+            if (period == 0) {
+                continue;
+            }
+            months.add(new Month(period,
+                ((Number) group.get("kilometrage")).doubleValue(),
+                ((Number) group.get("tonnage")).doubleValue() / 1000.0,
+                ((Number) group.get("consommation")).doubleValue()));
+        }
+        months.sort(Comparator.comparingInt(Month::period));
+        return months;
+    }
+
+    /**
+     * Monthly totals; tonnage in thousands of tons, as in the SER equation
+     */
+    private record Month(int period, double km, double tonnage, double consommation) {
+
+        /**
+         * Months since year 0, so windows can be measured in calendar months
+         */
+        int index() {
+            return (period / 100) * 12 + period % 100 - 1;
+        }
+    }
+}
@@ -4,13 +4,19 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import com.carburant.backend.config.CacheConfig;
+import com.carburant.backend.model.PredictionRequest;
+import com.carburant.backend.model.PredictionResult;
 import com.carburant.backend.model.RegressionResult;
 import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.ClosedFormRegression;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -20,11 +26,14 @@ public class SERService {
     
     private final MongoTemplate mongoTemplate;
     private final RegressionService regressionService;
+    private final int maxScenarios;
     
     @Autowired
-    public SERService(MongoTemplate mongoTemplate, RegressionService regressionService) {
+    public SERService(MongoTemplate mongoTemplate, RegressionService regressionService,
+            @Value("${app.regression-predict.max-scenarios:100000}") int maxScenarios) {
         this.mongoTemplate = mongoTemplate;
         this.regressionService = regressionService;
+        this.maxScenarios = maxScenarios;
     }
     
     /**
@@ -221,8 +230,13 @@ public class SERService {
             return 0.0;
         }
 
-        RegressionResult equation = serEquation.get();
-        
+        return calculateIPE_SER(record, serEquation.get());
+    }
+
+    /**
+     * IPE_SER of a truck record with an SER equation already looked up (L/100km·T)
+     */
+    public double calculateIPE_SER(VehicleRecord record, RegressionResult equation) {
         // Calculate reference consumption using regression equation
         double referenceConsumption = equation.getIntercept() + 
             (equation.getCoefficients().getKilometrage() * record.getKilometrage()) + 
@@ -260,6 +274,7 @@ public class SERService {
     /**
      * Get all available SER equations
      */
+    @Cacheable(cacheNames = CacheConfig.SER_EQUATIONS, keyGenerator = "regressionKeyGenerator")
     public List<RegressionResult> getAllSEREquations() {
         return mongoTemplate.findAll(RegressionResult.class, "regression_results");
     }
@@ -270,4 +285,88 @@ public class SERService {
     public RegressionResult saveSEREquation(RegressionResult equation) {
         return regressionService.saveRegressionResult(equation);
     }
+
+    /**
+     * Evaluate what-if scenarios with a stored SER equation, without fitting or saving anything
+     *
+     * @return The predictions, or empty if no equation matches the request
+     * @throws IllegalArgumentException If the scenarios are missing, too many or inconsistent
+     */
+    public Optional<PredictionResult> predict(PredictionRequest request) {
+        double[] kilometrage = request.getKilometrage();
+        if (kilometrage == null || kilometrage.length == 0) {
+            throw new IllegalArgumentException("kilometrage must contain at least one scenario");
+        }
+        if (kilometrage.length > maxScenarios) {
+            throw new IllegalArgumentException(
+                String.format("Too many scenarios: %d (at most %d)", kilometrage.length, maxScenarios));
+        }
+
+        Optional<RegressionResult> found;
+        String usedYear;
+        if (request.getEquationId() != null) {
+            found = regressionService.getRegressionResultById(request.getEquationId());
+            usedYear = found.map(RegressionResult::getYear).orElse(null);
+        } else {
+            if (request.getVehicleType() == null || request.getYear() == null) {
+                throw new IllegalArgumentException("equationId or vehicleType and year are required");
+            }
+            Optional<RegressionResultWithYear> withYear = getSEREquationWithFallbackInfo(
+                request.getRegion(), request.getYear(), request.getVehicleType());
+            found = withYear.map(RegressionResultWithYear::getRegressionResult);
+            usedYear = withYear.map(RegressionResultWithYear::getUsedYear).orElse(null);
+        }
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RegressionResult equation = found.get();
+        // Equations stored without a model type still name the vehicle type they were fitted on
+        String model = RegressionService.modelType(equation.getType());
+        if (model == null) {
+            model = RegressionService.modelType(equation.getVehicleType());
+        }
+        boolean truck = ClosedFormRegression.TRUCK.equals(model);
+        double[] tonnage = request.getTonnage();
+        if (truck && (tonnage == null || tonnage.length != kilometrage.length)) {
+            throw new IllegalArgumentException("tonnage must have one value per scenario for a CAMION equation");
+        }
+
+        long start = System.nanoTime();
+        int n = kilometrage.length;
+        double b0 = equation.getIntercept();
+        double b1 = equation.getCoefficients().getKilometrage();
+        double b2 = truck ? equation.getCoefficients().getTonnage() : 0.0;
+        double[] consommation = new double[n];
+        double[] ipeL100km = new double[n];
+        double[] ipeL100TonneKm = truck ? new double[n] : null;
+        for (int i = 0; i < n; i++) {
+            double km = kilometrage[i];
+            // The tonnage term was fitted on thousands of tons
+            double thousands = truck ? tonnage[i] / 1000.0 : 0.0;
+            double predicted = b0 + b1 * km + b2 * thousands;
+            consommation[i] = predicted;
+            if (km > 0) {
+                ipeL100km[i] = predicted / km * 100;
+                // L/100km·T per ton, like VehicleRecord and calculateIPE_SER
+                if (truck && tonnage[i] > 0) {
+                    ipeL100TonneKm[i] = ipeL100km[i] / tonnage[i];
+                }
+            }
+        }
+
+        PredictionResult result = new PredictionResult();
+        result.setEquationId(equation.getId());
+        result.setVehicleType(equation.getVehicleType() != null ? equation.getVehicleType() : equation.getType());
+        result.setYear(usedYear);
+        result.setRegion(equation.getRegion());
+        result.setModel(truck ? ClosedFormRegression.TRUCK : ClosedFormRegression.CAR);
+        result.setRegressionEquation(equation.getRegressionEquation());
+        result.setScenarios(n);
+        result.setConsommation(consommation);
+        result.setIpeL100km(ipeL100km);
+        result.setIpeL100TonneKm(ipeL100TonneKm);
+        result.setMicros((System.nanoTime() - start) / 1000);
+        return Optional.of(result);
+    }
 }
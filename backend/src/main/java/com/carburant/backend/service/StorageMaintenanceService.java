@@ -0,0 +1,289 @@
+package com.carburant.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.StorageMigrationReport;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.ContentHashUtils;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Storage-efficiency mode: compresses the content of archived (soft-deleted) files
+ * and compacts or drops VehicleRecord.rawValues.
+ *
+ * New records follow the configured raw-values mode when they are saved; the
+ * migration rewrites existing data and reports the bytes saved per collection.
+ */
+@Slf4j
+@Service
+public class StorageMaintenanceService {
+
+    public enum RawValuesMode {
+        KEEP, COMPACT, DROP
+    }
+
+    private static final String FILES_COLLECTION = "files";
+    private static final String RECORDS_COLLECTION = "vehicle_data";
+    private static final String CHUNKS_COLLECTION = "fs.chunks";
+    // GridFsTemplate keeps the content type in the GridFS metadata under this key
+    private static final String GRIDFS_CONTENT_TYPE = "_contentType";
+    private static final String GRIDFS_FILES_COLLECTION = "fs.files";
+    private static final String GRIDFS_HASH_FIELD = "metadata.sha256";
+    private static final int BATCH_SIZE = 500;
+    // Only keep a compressed copy if it saves at least 5%
+    private static final double MIN_COMPRESSION_GAIN = 0.05;
+
+    private final MongoTemplate mongoTemplate;
+    private final GridFsOperations gridFsOperations;
+    private final DataVersionService dataVersionService;
+    private final ContentReferenceService contentReferenceService;
+    private final RawValuesMode rawValuesMode;
+    private final boolean compressArchivedFiles;
+
+    public StorageMaintenanceService(
+            MongoTemplate mongoTemplate,
+            GridFsOperations gridFsOperations,
+            DataVersionService dataVersionService,
+            ContentReferenceService contentReferenceService,
+            @Value("${app.storage.raw-values:keep}") RawValuesMode rawValuesMode,
+            @Value("${app.storage.compress-archived-files:true}") boolean compressArchivedFiles) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsOperations = gridFsOperations;
+        this.dataVersionService = dataVersionService;
+        this.contentReferenceService = contentReferenceService;
+        this.rawValuesMode = rawValuesMode;
+        this.compressArchivedFiles = compressArchivedFiles;
+    }
+
+    public RawValuesMode getRawValuesMode() {
+        return rawValuesMode;
+    }
+
+    /**
+     * Apply a raw-values mode to a record
+     *
+     * @return true if the record changed
+     */
+    public static boolean applyRawValuesMode(VehicleRecord record, RawValuesMode mode) {
+        return switch (mode) {
+            case COMPACT -> record.compactRawValues();
+            case DROP -> record.dropRawValues();
+            case KEEP -> false;
+        };
+    }
+
+    /**
+     * Rewrite existing data in storage-efficient form
+     *
+     * @param modeOverride Raw-values mode to apply instead of the configured one (optional)
+     * @return Bytes before and after per collection
+     */
+    public StorageMigrationReport migrate(RawValuesMode modeOverride) throws IOException {
+        RawValuesMode mode = modeOverride != null ? modeOverride : rawValuesMode;
+        StorageMigrationReport report = new StorageMigrationReport();
+        report.setRawValuesMode(mode.name().toLowerCase());
+        report.setCompressArchivedFiles(compressArchivedFiles);
+
+        if (mode != RawValuesMode.KEEP) {
+            migrateRawValues(mode, report);
+        }
+        if (compressArchivedFiles) {
+            moveArchivedInlineContent(report);
+            compressArchivedContent(report);
+        }
+
+        report.setFinishedAt(LocalDateTime.now());
+        log.info("Storage migration finished: {} bytes saved ({})", report.getTotalBytesSaved(), report.getCollections());
+        return report;
+    }
+
+    private void migrateRawValues(RawValuesMode mode, StorageMigrationReport report) {
+        StorageMigrationReport.CollectionSavings savings = report.collection(RECORDS_COLLECTION);
+        Query query = Query.query(Criteria.where("rawValues").exists(true));
+        BulkOperations bulk = null;
+        int pending = 0;
+
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, RECORDS_COLLECTION)) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                VehicleRecord record = mongoTemplate.getConverter().read(VehicleRecord.class, document);
+                if (!applyRawValuesMode(record, mode)) {
+                    continue;
+                }
+                Document rewritten = new Document();
+                mongoTemplate.getConverter().write(record, rewritten);
+                savings.add(bsonSize(document), bsonSize(rewritten));
+
+                Update update = new Update();
+                if (record.getRawValues() != null) {
+                    update.set("rawValues", record.getRawValues());
+                } else {
+                    update.unset("rawValues");
+                }
+                if (record.getIpeDirectValue() != null) {
+                    update.set("ipeDirectValue", record.getIpeDirectValue());
+                }
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RECORDS_COLLECTION);
+                }
+                bulk.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))), update);
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+        if (savings.getDocumentsUpdated() > 0) {
+            dataVersionService.bumpAll(DataVersionService.RECORDS);
+        }
+    }
+
+    /**
+     * Archived files uploaded before GridFS storage still hold their bytes inline:
+     * move them to compressed GridFS content
+     */
+    private void moveArchivedInlineContent(StorageMigrationReport report) throws IOException {
+        StorageMigrationReport.CollectionSavings savings = report.collection(FILES_COLLECTION);
+        Query query = Query.query(Criteria.where("active").is(false).and("content").exists(true));
+
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, FILES_COLLECTION)) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                if (!(document.get("content") instanceof Binary binary)) {
+                    continue;
+                }
+                byte[] content = binary.getData();
+                String hash = ContentHashUtils.sha256(new ByteArrayResource(content));
+                Document metadata = new Document("vehicleType", document.get("vehicleType"))
+                    .append("year", document.get("year"))
+                    .append("region", document.get("region"))
+                    .append("sha256", hash)
+                    .append(ContentReferenceService.REF_COUNT, 1);
+                Deflated deflated = storeDeflated(new ByteArrayInputStream(content), content.length,
+                    document.getString("filename"), document.getString("contentType"), metadata, false);
+                ObjectId contentId = deflated.id();
+                report.collection(CHUNKS_COLLECTION).add(0, deflated.size());
+
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(document.get("_id"))),
+                    new Update().unset("content").set("contentId", contentId.toHexString()).set("contentHash", hash),
+                    FILES_COLLECTION);
+                Document rewritten = new Document(document);
+                rewritten.remove("content");
+                rewritten.append("contentId", contentId.toHexString()).append("contentHash", hash);
+                savings.add(bsonSize(document), bsonSize(rewritten));
+            }
+        }
+    }
+
+    /**
+     * Deflate GridFS content that is only referenced by archived files
+     */
+    private void compressArchivedContent(StorageMigrationReport report) throws IOException {
+        Set<String> archivedIds = new HashSet<>(mongoTemplate.findDistinct(
+            Query.query(Criteria.where("active").is(false).and("contentId").ne(null)), "contentId", FILES_COLLECTION, String.class));
+        List<String> activeIds = mongoTemplate.findDistinct(
+            Query.query(Criteria.where("active").is(true).and("contentId").ne(null)), "contentId", FILES_COLLECTION, String.class);
+        activeIds.forEach(archivedIds::remove);
+
+        for (String contentId : archivedIds) {
+            GridFSFile file = gridFsOperations.findOne(Query.query(Criteria.where("_id").is(new ObjectId(contentId))));
+            if (file == null || FileService.isDeflated(file)) {
+                continue;
+            }
+            Document metadata = file.getMetadata() != null ? new Document(file.getMetadata()) : new Document();
+            // The deflated copy gains its references as the files are switched over to it
+            metadata.put(ContentReferenceService.REF_COUNT, 0);
+            Deflated deflated;
+            try (InputStream content = gridFsOperations.getResource(file).getInputStream()) {
+                deflated = storeDeflated(content, file.getLength(), file.getFilename(),
+                    metadata.getString(GRIDFS_CONTENT_TYPE), metadata, true);
+            }
+            if (deflated == null) {
+                continue;
+            }
+            // Hide the original from hash lookups, so uploads adopt the deflated copy from now on
+            Query originalQuery = Query.query(Criteria.where("_id").is(file.getObjectId()));
+            mongoTemplate.updateFirst(originalQuery, new Update().unset(GRIDFS_HASH_FIELD), GRIDFS_FILES_COLLECTION);
+            Query referencing = Query.query(Criteria.where("contentId").is(contentId));
+            long switched = mongoTemplate.updateMulti(referencing,
+                Update.update("contentId", deflated.id().toHexString()), FILES_COLLECTION).getModifiedCount();
+            contentReferenceService.add(deflated.id(), switched);
+            contentReferenceService.release(file.getObjectId(), switched);
+            // An upload that adopted the original before it was hidden still holds a reference to it
+            if (!contentReferenceService.claimForDeletion(file.getObjectId())) {
+                log.warn("GridFS content {} is still referenced, keeping it next to its deflated copy", contentId);
+                continue;
+            }
+            gridFsOperations.delete(originalQuery);
+            report.collection(CHUNKS_COLLECTION).add(file.getLength(), deflated.size());
+        }
+    }
+
+    /**
+     * Store deflated content in GridFS
+     *
+     * @param onlyIfSmaller Skip storing (and return null) when compression saves less than 5%
+     */
+    private Deflated storeDeflated(InputStream content, long originalSize, String filename, String contentType,
+                                   Document metadata, boolean onlyIfSmaller) throws IOException {
+        Path deflated = Files.createTempFile("energix-deflate-", ".bin");
+        try {
+            try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(deflated),
+                    new Deflater(Deflater.BEST_COMPRESSION), 64 * 1024)) {
+                content.transferTo(out);
+            }
+            long compressedSize = Files.size(deflated);
+            if (onlyIfSmaller && compressedSize > originalSize * (1 - MIN_COMPRESSION_GAIN)) {
+                return null;
+            }
+            Document compressedMetadata = new Document(metadata)
+                .append(FileService.GRIDFS_COMPRESSION, FileService.GRIDFS_DEFLATE)
+                .append(FileService.GRIDFS_ORIGINAL_SIZE, originalSize);
+            compressedMetadata.remove(GRIDFS_CONTENT_TYPE);
+            try (InputStream in = Files.newInputStream(deflated)) {
+                return new Deflated(gridFsOperations.store(in, filename, contentType, compressedMetadata), compressedSize);
+            }
+        } finally {
+            Files.deleteIfExists(deflated);
+        }
+    }
+
+    private record Deflated(ObjectId id, long size) {
+    }
+
+    private long bsonSize(Document document) {
+        Codec<Document> codec = mongoTemplate.getDb().getCodecRegistry().get(Document.class);
+        return new RawBsonDocument(document, codec).getByteBuffer().remaining();
+    }
+}
@@ -0,0 +1,224 @@
+package com.carburant.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.carburant.backend.config.CacheConfig;
+import com.carburant.backend.exception.UploadTooLargeException;
+import com.carburant.backend.model.StagedUpload;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.ContentHashUtils;
+import com.carburant.backend.utils.ExcelHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stages uploaded files between /upload, /extract and /save, keyed by an upload token.
+ *
+ * The store is bounded in total staged bytes and evicts uploads that have not been
+ * used within the TTL. Files below the memory threshold stay on the heap as long as
+ * the in-memory budget allows; everything else is spilled to a temp file, which is
+ * deleted when the upload is evicted or discarded.
+ *
+ * Uploads are hashed (SHA-256) while they are staged. Sheet names and extraction
+ * results are cached by content hash, so identical workbooks are parsed once.
+ */
+@Slf4j
+@Service
+public class UploadStagingService {
+
+    private final ExcelService excelService;
+    private final ExcelHelper excelHelper;
+    private final long maxStagedSize;
+    private final long memoryThreshold;
+    private final long maxMemory;
+    private final AtomicLong inMemoryBytes = new AtomicLong();
+    private final Cache<String, StagedUpload> uploads;
+    private final org.springframework.cache.Cache uploadSheets;
+    private final org.springframework.cache.Cache extractionResults;
+
+    public UploadStagingService(
+            ExcelService excelService,
+            ExcelHelper excelHelper,
+            CacheManager cacheManager,
+            @Value("${app.upload-staging.ttl:30m}") Duration ttl,
+            @Value("${app.upload-staging.max-staged-size:512MB}") DataSize maxStagedSize,
+            @Value("${app.upload-staging.memory-threshold:2MB}") DataSize memoryThreshold,
+            @Value("${app.upload-staging.max-memory:64MB}") DataSize maxMemory) {
+        this.excelService = excelService;
+        this.excelHelper = excelHelper;
+        this.uploadSheets = cacheManager.getCache(CacheConfig.UPLOAD_SHEETS);
+        this.extractionResults = cacheManager.getCache(CacheConfig.EXTRACTION_RESULTS);
+        this.maxStagedSize = maxStagedSize.toBytes();
+        this.memoryThreshold = memoryThreshold.toBytes();
+        this.maxMemory = maxMemory.toBytes();
+        this.uploads = Caffeine.newBuilder()
+            .maximumWeight(maxStagedSize.toBytes())
+            .weigher((String token, StagedUpload upload) -> (int) Math.min(Integer.MAX_VALUE, Math.max(1, upload.getSize())))
+            .expireAfterAccess(ttl)
+            .scheduler(Scheduler.systemScheduler())
+            .executor(Runnable::run)
+            .removalListener((String token, StagedUpload upload, RemovalCause cause) -> release(upload, cause))
+            .build();
+    }
+
+    /**
+     * Stage an uploaded file and read its sheet names, unless identical content was seen before
+     *
+     * @param file The uploaded Excel file
+     * @return The staged upload, holding its token and sheet names
+     * @throws UploadTooLargeException if the file alone exceeds the staging budget; it would
+     *         be evicted as soon as it was stored, so its token could never be used
+     */
+    public StagedUpload stage(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("File cannot be empty");
+        }
+        long size = file.getSize();
+        if (size > maxStagedSize) {
+            throw new UploadTooLargeException("File is too large to stage: " + size + " bytes (maximum "
+                + maxStagedSize + " bytes)");
+        }
+
+        String token = UUID.randomUUID().toString();
+        StagedUpload upload;
+        if (size <= memoryThreshold && reserveMemory(size)) {
+            try (DigestInputStream inputStream = ContentHashUtils.hashing(file.getInputStream())) {
+                byte[] content = inputStream.readAllBytes();
+                upload = StagedUpload.inMemory(token, file.getOriginalFilename(), file.getContentType(),
+                    ContentHashUtils.hex(inputStream), content);
+            } catch (IOException e) {
+                inMemoryBytes.addAndGet(-size);
+                throw e;
+            }
+        } else {
+            Path spillFile = Files.createTempFile("energix-upload-", ".staged");
+            try (DigestInputStream inputStream = ContentHashUtils.hashing(file.getInputStream())) {
+                Files.copy(inputStream, spillFile, StandardCopyOption.REPLACE_EXISTING);
+                upload = StagedUpload.onDisk(token, file.getOriginalFilename(), file.getContentType(), size,
+                    ContentHashUtils.hex(inputStream), spillFile);
+            } catch (IOException e) {
+                Files.deleteIfExists(spillFile);
+                throw e;
+            }
+        }
+
+        try {
+            upload.setSheetNames(sheetNames(upload));
+        } catch (IOException | RuntimeException e) {
+            release(upload, RemovalCause.EXPLICIT);
+            throw e;
+        }
+
+        uploads.put(token, upload);
+        log.info("Staged upload {} ({}, {} bytes, {}, sha256 {}) with {} sheets", token, upload.getFilename(), size,
+            upload.isInMemory() ? "in memory" : "on disk", upload.getContentHash(), upload.getSheetNames().size());
+        return upload;
+    }
+
+    /**
+     * Extract the records of one sheet of a staged upload, without saving them.
+     * Results are cached per content hash and sheet, so previewing or saving the
+     * same workbook again does not parse it a second time.
+     *
+     * @return Records owned by the caller (copies of the cached result)
+     */
+    public List<VehicleRecord> extractRecords(StagedUpload upload, String sheetName) throws IOException {
+        String key = upload.getContentHash() + '|' + sheetName;
+        ExcelService.ExtractionResult cached = extractionResults.get(key, ExcelService.ExtractionResult.class);
+        if (cached != null) {
+            log.info("Reusing extraction of sheet {} for content {}", sheetName, upload.getContentHash());
+            return cached.copy().getVehicleRecords();
+        }
+
+        ExcelService.ExtractionResult result;
+        try (InputStream inputStream = upload.getInputStream()) {
+            result = excelService.extractDataFromInputStream(inputStream, sheetName);
+        }
+        log.info("Extracted {} records from sheet {} (NOT SAVED TO DATABASE)", result.getVehicleRecords().size(), sheetName);
+        extractionResults.put(key, result.copy());
+        return result.getVehicleRecords();
+    }
+
+    /**
+     * Get a staged upload by token; reading it renews its TTL
+     */
+    public Optional<StagedUpload> get(String token) {
+        return token == null ? Optional.empty() : Optional.ofNullable(uploads.getIfPresent(token));
+    }
+
+    /**
+     * Drop a staged upload once it has been saved
+     */
+    public void discard(String token) {
+        if (token != null) {
+            uploads.invalidate(token);
+        }
+    }
+
+    @PreDestroy
+    public void clear() {
+        uploads.invalidateAll();
+        uploads.cleanUp();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sheetNames(StagedUpload upload) throws IOException {
+        List<String> cached = uploadSheets.get(upload.getContentHash(), List.class);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> sheetNames = List.copyOf(upload.isInMemory()
+            ? excelHelper.getSheetNames(upload)
+            : excelHelper.getSheetNames(upload.getSpillFile()));
+        uploadSheets.put(upload.getContentHash(), sheetNames);
+        return sheetNames;
+    }
+
+    private boolean reserveMemory(long size) {
+        long current;
+        do {
+            current = inMemoryBytes.get();
+            if (current + size > maxMemory) {
+                return false;
+            }
+        } while (!inMemoryBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    private void release(StagedUpload upload, RemovalCause cause) {
+        if (upload == null || cause == RemovalCause.REPLACED) {
+            return;
+        }
+        if (upload.isInMemory()) {
+            inMemoryBytes.addAndGet(-upload.getSize());
+        } else {
+            try {
+                Files.deleteIfExists(upload.getSpillFile());
+            } catch (IOException e) {
+                log.warn("Could not delete staged file {}: {}", upload.getSpillFile(), e.getMessage());
+            }
+        }
+        log.debug("Released staged upload {} ({})", upload.getToken(), cause);
+    }
+}
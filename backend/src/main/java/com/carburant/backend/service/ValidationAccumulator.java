@@ -0,0 +1,187 @@
+package com.carburant.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.carburant.backend.model.MonthlyData;
+import com.carburant.backend.model.RegressionMoments;
+
+/**
+ * Single-pass validation of regression input: range checks, z-score outliers and the
+ * kilometrage/tonnage correlation, computed together as points are added.
+ *
+ * Means, variances and the correlation come from the Welford co-moments of
+ * (kilometrage, tonnage, consommation). An outlier is only known once the final mean
+ * and standard deviation are, so for each checked value the accumulator keeps the
+ * {@value #EXTREMES} highest and lowest points, which hold every outlier unless there
+ * are more than that on one side. Range warnings are listed for the first
+ * {@value #EXTREMES} values out of range and only counted after that. Memory therefore
+ * stays bounded whatever the number of points, and data can be validated as it is
+ * streamed.
+ */
+public class ValidationAccumulator {
+
+    static final double OUTLIER_THRESHOLD = 2.0; // Z-score threshold for outliers
+    static final double MULTICOLLINEARITY_THRESHOLD = 0.9; // Correlation threshold
+    static final double MIN_KILOMETRAGE = 0.0;
+    static final double MAX_KILOMETRAGE = 500000.0;
+    static final double MIN_CONSOMMATION = 0.0;
+    static final double MAX_CONSOMMATION = 50000.0;
+    static final double MIN_TONNAGE = 0.0;
+    static final double MAX_TONNAGE = 500000.0;
+    static final int EXTREMES = 64;
+
+    private final boolean checkCorrelation;
+    private final RegressionMoments moments = new RegressionMoments();
+    private final Extremes consommation = new Extremes();
+    private final Extremes kilometrage = new Extremes();
+    private final List<String> rangeWarnings = new ArrayList<>();
+    private long rangeWarningsOmitted;
+
+    /**
+     * @param checkCorrelation Whether to check the kilometrage/tonnage correlation (CAMION models)
+     */
+    public ValidationAccumulator(boolean checkCorrelation) {
+        this.checkCorrelation = checkCorrelation;
+    }
+
+    public void add(MonthlyData data) {
+        add(data.getMonth(), data.getKilometrage(), data.getTonnage(), data.getConsommation());
+    }
+
+    public void add(String month, double km, double tonnage, double consumption) {
+        if (km < MIN_KILOMETRAGE || km > MAX_KILOMETRAGE) {
+            rangeWarning("Kilometrage", km, month);
+        }
+        if (consumption < MIN_CONSOMMATION || consumption > MAX_CONSOMMATION) {
+            rangeWarning("Consumption", consumption, month);
+        }
+        if (tonnage != 0 && (tonnage < MIN_TONNAGE || tonnage > MAX_TONNAGE)) {
+            rangeWarning("Tonnage", tonnage, month);
+        }
+
+        long index = moments.getN();
+        moments.add(km, tonnage, consumption);
+        consommation.add(new Point(index, month, consumption));
+        kilometrage.add(new Point(index, month, km));
+    }
+
+    private void rangeWarning(String variable, double value, String month) {
+        if (rangeWarnings.size() < EXTREMES) {
+            rangeWarnings.add(String.format("Warning: %s value %.2f for month %s is outside expected range",
+                variable, value, month));
+        } else {
+            rangeWarningsOmitted++;
+        }
+    }
+
+    public long getCount() {
+        return moments.getN();
+    }
+
+    /**
+     * Pearson correlation of kilometrage and tonnage, NaN when either does not vary
+     */
+    public double getCorrelation() {
+        double denominator = Math.sqrt(moments.getC11() * moments.getC22());
+        return denominator > 0 ? moments.getC12() / denominator : Double.NaN;
+    }
+
+    /**
+     * Warnings for the points added so far: range warnings in the order of the points,
+     * then outliers in the order of the points, then the correlation warning
+     */
+    public List<String> warnings() {
+        List<String> warnings = new ArrayList<>(rangeWarnings);
+        if (rangeWarningsOmitted > 0) {
+            warnings.add(String.format("Warning: ...and %d more values outside expected range", rangeWarningsOmitted));
+        }
+        long n = moments.getN();
+        if (n > 1) {
+            List<Outlier> outliers = new ArrayList<>();
+            consommation.outliers(moments.getMeanY(), Math.sqrt(moments.getCyy() / (n - 1)), 0, outliers);
+            kilometrage.outliers(moments.getMeanX1(), Math.sqrt(moments.getC11() / (n - 1)), 1, outliers);
+            outliers.sort(Comparator.comparingLong(Outlier::index).thenComparingInt(Outlier::variable));
+            for (Outlier outlier : outliers) {
+                warnings.add(String.format("Warning: Possible outlier detected - %s value %.2f for month %s (z-score: %.2f)",
+                    outlier.variable() == 0 ? "Consumption" : "Kilometrage", outlier.point().value(),
+                    outlier.point().month(), outlier.zScore()));
+            }
+            if (consommation.truncated(moments.getMeanY(), Math.sqrt(moments.getCyy() / (n - 1)))
+                    || kilometrage.truncated(moments.getMeanX1(), Math.sqrt(moments.getC11() / (n - 1)))) {
+                warnings.add(String.format("Warning: More than %d possible outliers on one side; only the most extreme are listed",
+                    EXTREMES));
+            }
+        }
+
+        double correlation = getCorrelation();
+        if (checkCorrelation && Math.abs(correlation) > MULTICOLLINEARITY_THRESHOLD) {
+            warnings.add(String.format("Warning: High correlation (%.2f) detected between kilometrage and tonnage. " +
+                "This may affect the reliability of the regression results.", correlation));
+        }
+        return warnings;
+    }
+
+    private record Point(long index, String month, double value) {
+    }
+
+    private record Outlier(Point point, int variable, double zScore) {
+        long index() {
+            return point.index();
+        }
+    }
+
+    /**
+     * The highest and lowest points of one value, at most EXTREMES of each
+     */
+    private static final class Extremes {
+        // Min-heap of the highest values and max-heap of the lowest, so the least extreme is evicted first
+        private final PriorityQueue<Point> highest = new PriorityQueue<>(Comparator.comparingDouble(Point::value));
+        private final PriorityQueue<Point> lowest = new PriorityQueue<>(Comparator.comparingDouble(Point::value).reversed());
+
+        void add(Point point) {
+            offer(highest, point);
+            offer(lowest, point);
+        }
+
+        void outliers(double mean, double standardDeviation, int variable, List<Outlier> outliers) {
+            if (!(standardDeviation > 0)) {
+                return;
+            }
+            // With few points both heaps hold the same point; report it once
+            Set<Long> seen = new HashSet<>();
+            for (PriorityQueue<Point> side : List.of(highest, lowest)) {
+                for (Point point : side) {
+                    double zScore = (point.value() - mean) / standardDeviation;
+                    if (Math.abs(zScore) > OUTLIER_THRESHOLD && seen.add(point.index())) {
+                        outliers.add(new Outlier(point, variable, zScore));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Whether a full side is made only of outliers, in which case points beyond it may be outliers too
+         */
+        boolean truncated(double mean, double standardDeviation) {
+            if (!(standardDeviation > 0)) {
+                return false;
+            }
+            return highest.size() == EXTREMES && (highest.peek().value() - mean) / standardDeviation > OUTLIER_THRESHOLD
+                || lowest.size() == EXTREMES && (lowest.peek().value() - mean) / standardDeviation < -OUTLIER_THRESHOLD;
+        }
+
+        private static void offer(PriorityQueue<Point> heap, Point point) {
+            if (heap.size() < EXTREMES) {
+                heap.add(point);
+            } else if (heap.comparator().compare(point, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(point);
+            }
+        }
+    }
+}
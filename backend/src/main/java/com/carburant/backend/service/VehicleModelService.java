@@ -0,0 +1,306 @@
+package com.carburant.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.carburant.backend.model.RegressionMoments;
+import com.carburant.backend.model.RegressionResult;
+import com.carburant.backend.model.VehicleModel;
+import com.carburant.backend.model.VehicleModelReport;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.utils.ClosedFormRegression;
+import com.carburant.backend.utils.MonthOrder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fits a reference model per vehicle (matricule) and ranks vehicles by their drift.
+ *
+ * Each vehicle gets the SER model of its type, fitted with the closed form used by
+ * RegressionService on its own monthly totals, except for the most recent months.
+ * Those are compared with the model predictions: a vehicle whose recent consumption
+ * moves away from what its own history predicts has drifted. The monthly totals of
+ * all vehicles come from one aggregation and the fits run on the regression pool.
+ */
+@Slf4j
+@Service
+public class VehicleModelService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ForkJoinPool regressionPool;
+    private final int minMonths;
+    private final int recentMonths;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public VehicleModelService(
+            MongoTemplate mongoTemplate,
+            @Qualifier("regressionPool") ForkJoinPool regressionPool,
+            @Value("${app.vehicle-models.min-months:6}") int minMonths,
+            @Value("${app.vehicle-models.recent-months:3}") int recentMonths) {
+        this.mongoTemplate = mongoTemplate;
+        this.regressionPool = regressionPool;
+        this.minMonths = Math.max(4, minMonths);
+        this.recentMonths = Math.max(1, recentMonths);
+    }
+
+    /**
+     * Refit the models of every vehicle, or of the vehicles of one type
+     *
+     * @param vehicleType Type to refit (optional)
+     * @return The run report, or null if another run is in progress
+     */
+    public VehicleModelReport fitAll(String vehicleType) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Vehicle model fitting is already running");
+            return null;
+        }
+        try {
+            VehicleModelReport report = new VehicleModelReport();
+            report.setVehicleType(vehicleType);
+            report.setParallelism(regressionPool.getParallelism());
+            LocalDateTime fittedAt = LocalDateTime.now();
+
+            long start = System.nanoTime();
+            List<History> histories = loadHistories(vehicleType);
+            report.setAggregationMillis(elapsedMillis(start));
+            report.setVehicles(histories.size());
+
+            start = System.nanoTime();
+            List<Optional<VehicleModel>> fits = regressionPool.submit(() -> histories.parallelStream()
+                .map(history -> fit(history, fittedAt))
+                .toList()).join();
+            report.setFitMillis(elapsedMillis(start));
+
+            List<VehicleModel> models = new ArrayList<>();
+            for (int i = 0; i < fits.size(); i++) {
+                if (fits.get(i).isPresent()) {
+                    models.add(fits.get(i).get());
+                } else if (histories.get(i).isSufficient()) {
+                    report.setFailed(report.getFailed() + 1);
+                } else {
+                    report.setInsufficient(report.getInsufficient() + 1);
+                }
+            }
+            report.setFitted(models.size());
+
+            start = System.nanoTime();
+            write(models);
+            // Vehicles that no longer have enough months keep no stale model
+            Criteria stale = Criteria.where("fittedAt").lt(fittedAt);
+            if (vehicleType != null) {
+                stale.and("vehicleType").is(vehicleType);
+            }
+            report.setModelsRemoved(mongoTemplate.remove(Query.query(stale), VehicleModel.class).getDeletedCount());
+            report.setWriteMillis(elapsedMillis(start));
+            report.setFinishedAt(LocalDateTime.now());
+            log.info("Vehicle models: {} vehicles, {} fitted, {} insufficient, {} failed "
+                    + "(aggregation {} ms, fits {} ms on {} threads, write {} ms)",
+                report.getVehicles(), report.getFitted(), report.getInsufficient(), report.getFailed(),
+                report.getAggregationMillis(), report.getFitMillis(), report.getParallelism(), report.getWriteMillis());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Vehicles whose recent months are furthest from their own baseline, in either direction
+     *
+     * @param limit Maximum number of vehicles
+     */
+    public List<VehicleModel> rankByDrift(String vehicleType, String region, int limit) {
+        Query query = new Query();
+        if (vehicleType != null) {
+            query.addCriteria(Criteria.where("vehicleType").is(vehicleType));
+        }
+        if (region != null) {
+            query.addCriteria(Criteria.where("region").is(region));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "driftMagnitude")).limit(limit);
+        return mongoTemplate.find(query, VehicleModel.class);
+    }
+
+    public Optional<VehicleModel> getModel(String vehicleType, String matricule) {
+        return Optional.ofNullable(mongoTemplate.findById(new VehicleModel(vehicleType, matricule).getId(),
+            VehicleModel.class));
+    }
+
+    /**
+     * Monthly totals of every vehicle, in one pass over vehicle_data
+     */
+    private List<History> loadHistories(String vehicleType) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (vehicleType != null) {
+            stages.add(Aggregation.match(Criteria.where("type").is(vehicleType)));
+        }
+        stages.add(Aggregation.match(Criteria.where("matricule").ne(null)));
+        stages.add(Aggregation.group("type", "matricule", "year", "mois")
+            .sum("kilometrage").as("kilometrage")
+            .sum("produitsTonnes").as("tonnage")
+            .sum("consommationL").as("consommation")
+            .last("region").as("region"));
+        Aggregation aggregation = Aggregation.newAggregation(stages)
+            .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        Map<List<String>, History> histories = new LinkedHashMap<>();
+        try (Stream<Document> groups = mongoTemplate.aggregateStream(aggregation, VehicleRecord.class, Document.class)) {
+            groups.forEach(group -> {
+                Document key = group.get("_id", Document.class);
+                String type = Objects.toString(key.get("type"), null);
+                String matricule = Objects.toString(key.get("matricule"), null);
+                int period = MonthOrder.period(Objects.toString(key.get("year"), null), Objects.toString(key.get("mois"), null));
+                if (type == null || matricule == null || period == 0) {
+                    return;
+                }
+                histories.computeIfAbsent(List.of(type, matricule), k -> new History(type, matricule))
+                    .points().add(new Point(period,
+                        ((Number) group.get("kilometrage")).doubleValue(),
+                        ((Number) group.get("tonnage")).doubleValue() / 1000.0,
+                        ((Number) group.get("consommation")).doubleValue(),
+                        group.getString("region")));
+            });
+        }
+        List<History> result = new ArrayList<>(histories.values());
+        result.forEach(history -> history.prepare(minMonths, recentMonths));
+        return result;
+    }
+
+    private Optional<VehicleModel> fit(History history, LocalDateTime fittedAt) {
+        if (!history.isSufficient()) {
+            return Optional.empty();
+        }
+        List<Point> points = history.points();
+        int baselineSize = points.size() - recentMonths;
+        boolean truck = ClosedFormRegression.TRUCK.equals(history.model());
+
+        RegressionMoments moments = new RegressionMoments();
+        for (int i = 0; i < baselineSize; i++) {
+            Point point = points.get(i);
+            moments.add(point.km(), truck ? point.tonnage() : 0.0, point.consommation());
+        }
+        RegressionResult result;
+        try {
+            result = ClosedFormRegression.estimate(moments, history.model());
+        } catch (IllegalArgumentException e) {
+            log.debug("No model for vehicle {} ({}): {}", history.matricule(), history.vehicleType(), e.getMessage());
+            return Optional.empty();
+        }
+
+        VehicleModel model = new VehicleModel(history.vehicleType(), history.matricule());
+        model.setModel(history.model());
+        model.setIntercept(result.getIntercept());
+        model.setKilometrage(result.getCoefficients().getKilometrage());
+        model.setTonnage(result.getCoefficients().getTonnage());
+        model.setMonths(baselineSize);
+        model.setRSquared(result.getRSquared());
+        model.setStandardError(result.getStandardError());
+        model.setBaselineFrom(points.get(0).period());
+        model.setBaselineTo(points.get(baselineSize - 1).period());
+        model.setRecentMonths(recentMonths);
+        model.setRecentTo(points.get(points.size() - 1).period());
+        model.setRegion(points.get(points.size() - 1).region());
+        model.setFittedAt(fittedAt);
+
+        double residuals = 0;
+        double predicted = 0;
+        for (int i = baselineSize; i < points.size(); i++) {
+            Point point = points.get(i);
+            double prediction = model.predict(point.km(), truck ? point.tonnage() : 0.0);
+            residuals += point.consommation() - prediction;
+            predicted += prediction;
+        }
+        model.setDrift(predicted > 0 ? residuals / predicted : 0.0);
+        double standardErrorOfMean = result.getStandardError() / Math.sqrt(recentMonths);
+        model.setDriftScore(standardErrorOfMean > 0 ? residuals / recentMonths / standardErrorOfMean : 0.0);
+        model.setDriftMagnitude(Math.abs(model.getDriftScore()));
+        return Optional.of(model);
+    }
+
+    private void write(List<VehicleModel> models) {
+        if (models.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VehicleModel.class);
+        for (VehicleModel model : models) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(model.getId())), model,
+                FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private record Point(int period, double km, double tonnage, double consommation, String region) {
+    }
+
+    /**
+     * Monthly points of one vehicle, in chronological order once prepared
+     */
+    private static final class History {
+        private final String vehicleType;
+        private final String matricule;
+        private final String model;
+        private final List<Point> points = new ArrayList<>();
+        private boolean sufficient;
+
+        History(String vehicleType, String matricule) {
+            this.vehicleType = vehicleType;
+            this.matricule = matricule;
+            this.model = RegressionStatisticsService.defaultModel(vehicleType);
+        }
+
+        void prepare(int minMonths, int recentMonths) {
+            if (ClosedFormRegression.TRUCK.equals(model)) {
+                // Same points as the fleet model: months with both distance and tonnage
+                points.removeIf(point -> point.km() <= 0 || point.tonnage() <= 0);
+            }
+            points.sort(Comparator.comparingInt(Point::period));
+            sufficient = points.size() >= minMonths + recentMonths;
+        }
+
+        String vehicleType() {
+            return vehicleType;
+        }
+
+        String matricule() {
+            return matricule;
+        }
+
+        String model() {
+            return model;
+        }
+
+        List<Point> points() {
+            return points;
+        }
+
+        boolean isSufficient() {
+            return sufficient;
+        }
+    }
+}
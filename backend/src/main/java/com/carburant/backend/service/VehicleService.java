@@ -1,23 +1,38 @@
 package com.carburant.backend.service;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import com.carburant.backend.config.CacheConfig;
+import com.carburant.backend.model.RegressionResult;
 import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.model.dto.ImportDiffResult;
 import com.carburant.backend.repository.VehicleRepository;
 
 import lombok.extern.slf4j.Slf4j;
@@ -25,16 +40,19 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Service
 public class VehicleService {
+    // Records saved per query of their stored versions
+    private static final int SAVE_BATCH_SIZE = 500;
+
     private final VehicleRepository vehicleRepository;
     private final ExcelService excelService;
     private final MongoTemplate mongoTemplate;
     private final NotificationService notificationService;
     private final RegressionService regressionService;
+    private final RegressionStatisticsService regressionStatisticsService;
     private final SERService serService;
-    
-    private byte[] cachedFileContent;
-    private String cachedFileName;
-    private List<String> cachedSheetNames;
+    private final DataVersionService dataVersionService;
+    private final FacetService facetService;
+    private final Executor anomalyScanExecutor;
 
     @Autowired
     public VehicleService(
@@ -43,16 +61,24 @@ public class VehicleService {
             MongoTemplate mongoTemplate,
             NotificationService notificationService,
             RegressionService regressionService,
-            SERService serService) {
+            RegressionStatisticsService regressionStatisticsService,
+            SERService serService,
+            DataVersionService dataVersionService,
+            FacetService facetService,
+            @Qualifier("anomalyScanExecutor") Executor anomalyScanExecutor) {
         this.vehicleRepository = vehicleRepository;
         this.excelService = excelService;
         this.mongoTemplate = mongoTemplate;
         this.notificationService = notificationService;
         this.regressionService = regressionService;
+        this.regressionStatisticsService = regressionStatisticsService;
         this.serService = serService;
-        this.cachedSheetNames = new ArrayList<>();
+        this.dataVersionService = dataVersionService;
+        this.facetService = facetService;
+        this.anomalyScanExecutor = anomalyScanExecutor;
     }
 
+    // Not cached: a full-collection list would take most of the vehicleRecords cache
     public List<VehicleRecord> getAllRecords() {
         return vehicleRepository.findAll();
     }
@@ -61,134 +87,116 @@ public class VehicleService {
         return vehicleRepository.findById(id);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByType(String type) {
         return vehicleRepository.findByType(type);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByTypeAndMonth(String type, String mois) {
         return vehicleRepository.findByTypeAndMois(type, mois);
     }
     
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByMonth(String mois) {
         return vehicleRepository.findByMois(mois);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByMatricule(String matricule) {
         return vehicleRepository.findByMatricule(matricule);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByYear(String year) {
         return vehicleRepository.findByYear(year);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByYearAndMois(String year, String mois) {
         return vehicleRepository.findByYearAndMois(year, mois);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByTypeAndYear(String type, String year) {
         return vehicleRepository.findByTypeAndYear(type, year);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByMatriculeAndYear(String matricule, String year) {
         return vehicleRepository.findByMatriculeAndYear(matricule, year);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByTypeMatriculeAndYear(String type, String matricule, String year) {
         return vehicleRepository.findByTypeAndMatriculeAndYear(type, matricule, year);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByTypeYearAndMonth(String type, String year, String mois) {
         return vehicleRepository.findByTypeAndYearAndMois(type, year, mois);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByMatriculeAndYearAndMois(String matricule, String year, String mois) {
         return vehicleRepository.findByMatriculeAndYearAndMois(matricule, year, mois);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByTypeAndMatriculeAndYearAndMois(String type, String matricule, String year, String mois) {
         return vehicleRepository.findByTypeAndMatriculeAndYearAndMois(type, matricule, year, mois);
     }
 
+    @Cacheable(cacheNames = CacheConfig.VEHICLE_RECORDS, keyGenerator = "recordsKeyGenerator")
     public List<VehicleRecord> getRecordsByTypeAndMatricule(String type, String matricule) {
         return vehicleRepository.findByTypeAndMatricule(type, matricule);
     }
 
-    public List<String> getCachedSheetNames() {
-        if (cachedSheetNames == null || cachedSheetNames.isEmpty()) {
-            log.info("No sheet names are cached. Returning default vehicle types.");
-            List<String> defaultTypes = new ArrayList<>();
-            defaultTypes.add("all");
-            
-            try {
-                List<String> dbTypes = vehicleRepository.findDistinctTypes();
-                if (dbTypes != null && !dbTypes.isEmpty()) {
-                    defaultTypes.addAll(dbTypes);
-                    log.info("Added {} vehicle types from database", dbTypes.size());
-                }
-            } catch (Exception e) {
-                log.warn("Could not retrieve vehicle types from database: {}", e.getMessage());
-                defaultTypes.add("camions");
-                defaultTypes.add("voitures");
-            }
-            
-            return defaultTypes;
-        }
-        return cachedSheetNames;
+    /**
+     * Records imported from a sheet of a stored file, optionally narrowed to one source row
+     */
+    public List<VehicleRecord> getRecordsBySource(String fileId, String sheet, Integer row) {
+        return row != null
+            ? vehicleRepository.findBySourceFileIdAndSourceSheetAndSourceRow(fileId, sheet, row)
+            : vehicleRepository.findBySourceFileIdAndSourceSheetOrderBySourceRowAsc(fileId, sheet);
     }
 
-    public List<String> processAndCacheFile(MultipartFile file) throws IOException {
-        if (file == null || file.isEmpty()) {
-            log.error("Empty file received for caching");
-            throw new IllegalArgumentException("File cannot be empty");
-        }
+    public List<String> getVehicleTypes() {
+        List<String> types = new ArrayList<>();
+        types.add("all");
         
-        log.info("Processing and caching file: {}", file.getOriginalFilename());
-        
-        this.cachedFileContent = file.getBytes();
-        this.cachedFileName = file.getOriginalFilename();
-        this.cachedSheetNames = excelService.extractSheetNames(file);
-        
-        log.info("Successfully cached file: {} with {} sheets", this.cachedFileName, this.cachedSheetNames.size());
-        return this.cachedSheetNames;
-    }
-
-    public List<VehicleRecord> extractDataFromCacheWithoutSaving(String sheetName) throws IOException {
-        if (cachedFileContent == null || cachedFileContent.length == 0) {
-            log.error("No file content is cached for extraction");
-            throw new IllegalStateException("No file has been uploaded. Please upload a file first.");
+        try {
+            List<String> dbTypes = facetService.getDistinctValues("types", null);
+            if (dbTypes != null && !dbTypes.isEmpty()) {
+                types.addAll(dbTypes);
+                log.info("Added {} vehicle types from database", dbTypes.size());
+            }
+        } catch (Exception e) {
+            log.warn("Could not retrieve vehicle types from database: {}", e.getMessage());
+            types.add("camions");
+            types.add("voitures");
         }
         
-        log.info("Extracting data from cached file sheet: {} (WITHOUT SAVING TO DATABASE)", sheetName);
-        
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(cachedFileContent);
-        ExcelService.ExtractionResult extractionResult = excelService.extractDataFromInputStream(inputStream, sheetName);
-        List<VehicleRecord> records = extractionResult.getVehicleRecords();
-        log.info("Extracted {} records from sheet {} (NOT SAVED TO DATABASE)", records.size(), sheetName);
-        
-        return records;
+        return types;
     }
 
-    public List<VehicleRecord> extractDataFromCache(String sheetName) throws IOException {
-        return extractDataFromCache(sheetName, true);
+    public int saveRecords(List<VehicleRecord> records, String type, String year, String month, boolean replaceExisting, String region) {
+        return saveRecords(records, type, year, month, replaceExisting, region, null);
     }
 
-    public List<VehicleRecord> extractDataFromCache(String sheetName, boolean replaceExisting) throws IOException {
-        if (cachedFileContent == null || cachedFileContent.length == 0) {
-            log.error("No file content is cached for extraction");
-            throw new IllegalStateException("No file has been uploaded. Please upload a file first.");
-        }
-        
-        log.info("Extracting data from cached file sheet: {}, replaceExisting: {}", sheetName, replaceExisting);
-        
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(cachedFileContent);
-        ExcelService.ExtractionResult extractionResult = excelService.extractDataFromInputStream(inputStream, sheetName);
-        List<VehicleRecord> records = extractionResult.getVehicleRecords();
-        log.info("Extracted {} records from sheet {}", records.size(), sheetName);
-        
-        return saveRecordsWithDuplicatePrevention(records, sheetName, replaceExisting);
+    public int saveRecords(List<VehicleRecord> records, String type, String year, String month, boolean replaceExisting,
+                           String region, String sourceFileId) {
+        return saveRecords(records, type, year, month, replaceExisting, region, sourceFileId, savedRecord -> { });
     }
 
-    public int saveRecords(List<VehicleRecord> records, String type, String year, String month, boolean replaceExisting, String region) {
+    /**
+     * Save extracted records under the selected type, year, month and region
+     *
+     * @param sourceFileId The stored file the records were extracted from (null if the file could not be stored)
+     * @param onSaved Called for every record written
+     */
+    public int saveRecords(List<VehicleRecord> records, String type, String year, String month, boolean replaceExisting,
+                           String region, String sourceFileId, Consumer<VehicleRecord> onSaved) {
         if (records == null || records.isEmpty()) {
             return 0;
         }
@@ -198,13 +206,100 @@ public class VehicleService {
             record.setYear(year);
             record.setMois(month);
             record.setRegion(region);
+            record.setSourceFileId(sourceFileId);
         });
 
-        List<VehicleRecord> savedRecords = saveRecordsWithDuplicatePrevention(records, type, replaceExisting);
+        List<VehicleRecord> savedRecords = saveRecordsWithDuplicatePrevention(records, type, replaceExisting, onSaved);
         return savedRecords.size();
     }
 
-    private List<VehicleRecord> saveRecordsWithDuplicatePrevention(List<VehicleRecord> records, String type, boolean replaceExisting) {
+    /**
+     * Incremental import: compare each row with the record already stored for the same
+     * type, year, month, region and matricule (in sheet order when a matricule repeats)
+     * and only write rows that are new or whose content hash changed. Stored records
+     * that are no longer in the sheet are deleted. Unchanged rows still get the
+     * provenance (file, sheet and row) of the new import.
+     *
+     * @param sourceFileId The stored file the records were extracted from (null if the file could not be stored)
+     * @param onSaved Called for every record written
+     * @return Inserted, updated, unchanged, relocated and deleted counts
+     */
+    public ImportDiffResult saveRecordsIncrementally(List<VehicleRecord> records, String type, String year, String month,
+                                                     String region, String sourceFileId, Consumer<VehicleRecord> onSaved) {
+        Query scope = Query.query(Criteria.where("type").is(type)
+            .and("year").is(year)
+            .and("mois").is(month)
+            .and("region").is(region))
+            .with(Sort.by(Sort.Direction.ASC, "_id"));
+        // The statistics fields make the stored version usable as the previous version of an update
+        scope.fields().include("_id", "matricule", "contentHash", "type", "year", "mois", "region",
+            "kilometrage", "produitsTonnes", "consommationL", "sourceFileId", "sourceSheet", "sourceRow");
+        Map<String, Deque<VehicleRecord>> stored = new HashMap<>();
+        for (VehicleRecord record : mongoTemplate.find(scope, VehicleRecord.class)) {
+            stored.computeIfAbsent(record.getMatricule(), key -> new ArrayDeque<>()).add(record);
+        }
+
+        ImportDiffResult diff = new ImportDiffResult();
+        BulkOperations provenanceUpdates = null;
+        for (VehicleRecord record : records == null ? List.<VehicleRecord>of() : records) {
+            record.setType(type);
+            record.setYear(year);
+            record.setMois(month);
+            record.setRegion(region);
+            record.setSourceFileId(sourceFileId);
+
+            Deque<VehicleRecord> candidates = stored.get(record.getMatricule());
+            VehicleRecord existing = candidates != null ? candidates.pollFirst() : null;
+            if (existing == null) {
+                onSaved.accept(storeRecord(record, null));
+                diff.recordInserted();
+            } else if (record.computeContentHash().equals(existing.getContentHash())) {
+                diff.recordUnchanged();
+                if (!Objects.equals(record.getSourceFileId(), existing.getSourceFileId())
+                        || !Objects.equals(record.getSourceSheet(), existing.getSourceSheet())
+                        || !Objects.equals(record.getSourceRow(), existing.getSourceRow())) {
+                    if (provenanceUpdates == null) {
+                        provenanceUpdates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VehicleRecord.class);
+                    }
+                    provenanceUpdates.updateOne(Query.query(Criteria.where("_id").is(existing.getId())), new Update()
+                        .set("sourceFileId", record.getSourceFileId())
+                        .set("sourceSheet", record.getSourceSheet())
+                        .set("sourceRow", record.getSourceRow()));
+                    diff.recordRelocated();
+                }
+            } else {
+                record.setId(existing.getId());
+                onSaved.accept(storeRecord(record, existing));
+                diff.recordUpdated();
+            }
+        }
+
+        if (provenanceUpdates != null) {
+            // Only the provenance changed: the statistics stay valid, the cached records do not
+            provenanceUpdates.execute();
+            dataVersionService.bump(DataVersionService.RECORDS, type, year, region);
+        }
+
+        List<String> removedIds = stored.values().stream()
+            .flatMap(Deque::stream)
+            .map(VehicleRecord::getId)
+            .toList();
+        if (!removedIds.isEmpty()) {
+            diff.setDeleted(mongoTemplate.remove(Query.query(Criteria.where("_id").in(removedIds)), VehicleRecord.class)
+                .getDeletedCount());
+            dataVersionService.bump(DataVersionService.RECORDS, type, year, region);
+            regressionStatisticsService.invalidate(type, year, region);
+        }
+        regressionStatisticsService.flush();
+
+        log.info("Incremental import for {}/{}/{}/{}: {} inserted, {} updated, {} unchanged ({} relocated), {} deleted",
+            type, year, month, region, diff.getInserted(), diff.getUpdated(), diff.getUnchanged(), diff.getRelocated(),
+            diff.getDeleted());
+        return diff;
+    }
+
+    private List<VehicleRecord> saveRecordsWithDuplicatePrevention(List<VehicleRecord> records, String type, boolean replaceExisting,
+                                                                   Consumer<VehicleRecord> onSaved) {
         if (records == null || records.isEmpty()) {
             log.info("No records to save for type: {}", type);
             return List.of();
@@ -213,16 +308,20 @@ public class VehicleService {
         if (replaceExisting) {
             log.info("Deleting existing records for type: {}", type);
             vehicleRepository.deleteByType(type);
-            List<VehicleRecord> savedRecords = saveAll(records);
+            dataVersionService.bumpAll(DataVersionService.RECORDS);
+            regressionStatisticsService.invalidateType(type);
+            List<VehicleRecord> savedRecords = saveAll(records, null, onSaved);
             log.info("Saved {} records to database", savedRecords.size());
             return savedRecords;
         } else {
             log.info("Using selective update approach to prevent duplicates for type: {}", type);
             List<VehicleRecord> existingRecords = vehicleRepository.findByType(type);
             Map<String, VehicleRecord> existingRecordsMap = new HashMap<>();
+            Map<String, VehicleRecord> existingById = new HashMap<>();
             for (VehicleRecord record : existingRecords) {
                 String key = generateNaturalKey(record);
                 existingRecordsMap.put(key, record);
+                existingById.put(record.getId(), record);
             }
             
             List<VehicleRecord> recordsToSave = new ArrayList<>();
@@ -236,7 +335,8 @@ public class VehicleService {
                 recordsToSave.add(record);
             }
             
-            return saveAll(recordsToSave);
+            // The records read above are the stored versions of the updates
+            return saveAll(recordsToSave, existingById, onSaved);
         }
     }
 
@@ -249,6 +349,20 @@ public class VehicleService {
     }
 
     public VehicleRecord saveRecord(VehicleRecord record) {
+        VehicleRecord previous = record.getId() != null ? vehicleRepository.findById(record.getId()).orElse(null) : null;
+        VehicleRecord savedRecord = storeRecord(record, previous);
+        regressionStatisticsService.flush();
+        return savedRecord;
+    }
+
+    /**
+     * Save a record and update the in-memory regression statistics; callers flush them
+     *
+     * @param previous The stored version of the record, to move it out of the regression statistics (null for an insert)
+     */
+    private VehicleRecord storeRecord(VehicleRecord record, VehicleRecord previous) {
+        // Hash the values as received, before indices are derived from them
+        record.setContentHash(record.computeContentHash());
         if (record.getIpeL100km() == 0) {
             record.calculateIndices();
         }
@@ -273,7 +387,16 @@ public class VehicleService {
                 record.getMatricule(), ipeSerL100km);
         }
         
-        VehicleRecord savedRecord = vehicleRepository.save(record);
+        // An update may move the record out of its previous scope, so invalidate everything
+        boolean isUpdate = record.getId() != null;
+        VehicleRecord savedRecord = regressionStatisticsService.write(previous, record,
+            () -> vehicleRepository.save(record));
+        if (isUpdate) {
+            dataVersionService.bumpAll(DataVersionService.RECORDS);
+        } else {
+            dataVersionService.bump(DataVersionService.RECORDS,
+                savedRecord.getType(), savedRecord.getYear(), savedRecord.getRegion());
+        }
         checkForAnomaliesAndNotify(savedRecord);
         return savedRecord;
     }
@@ -333,17 +456,59 @@ public class VehicleService {
     }
 
     public void deleteRecord(String id) {
-        vehicleRepository.deleteById(id);
+        VehicleRecord previous = vehicleRepository.findById(id).orElse(null);
+        regressionStatisticsService.write(previous, null, () -> {
+            vehicleRepository.deleteById(id);
+            return null;
+        });
+        dataVersionService.bumpAll(DataVersionService.RECORDS);
+        if (previous != null) {
+            regressionStatisticsService.flush();
+        }
     }
 
     public List<VehicleRecord> saveAll(List<VehicleRecord> records) {
+        return saveAll(records, null, savedRecord -> { });
+    }
+
+    /**
+     * @param stored Stored versions of the records being updated, by id, if the caller has
+     *               already read them (optional); the others are read with one query per batch
+     */
+    private List<VehicleRecord> saveAll(List<VehicleRecord> records, Map<String, VehicleRecord> stored,
+                                        Consumer<VehicleRecord> onSaved) {
         List<VehicleRecord> savedRecords = new ArrayList<>();
-        for (VehicleRecord record : records) {
-            savedRecords.add(saveRecord(record));
+        try {
+            for (int from = 0; from < records.size(); from += SAVE_BATCH_SIZE) {
+                List<VehicleRecord> batch = records.subList(from, Math.min(records.size(), from + SAVE_BATCH_SIZE));
+                Map<String, VehicleRecord> previous = new HashMap<>();
+                List<String> missing = new ArrayList<>();
+                for (VehicleRecord record : batch) {
+                    if (record.getId() == null) {
+                        continue;
+                    }
+                    if (stored != null && stored.containsKey(record.getId())) {
+                        previous.put(record.getId(), stored.get(record.getId()));
+                    } else {
+                        missing.add(record.getId());
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    vehicleRepository.findAllById(missing).forEach(record -> previous.put(record.getId(), record));
+                }
+                for (VehicleRecord record : batch) {
+                    VehicleRecord savedRecord = storeRecord(record, record.getId() != null ? previous.get(record.getId()) : null);
+                    savedRecords.add(savedRecord);
+                    onSaved.accept(savedRecord);
+                }
+            }
+        } finally {
+            regressionStatisticsService.flush();
         }
         return savedRecords;
     }
 
+    @Cacheable(cacheNames = CacheConfig.MONTHLY_AGGREGATION, keyGenerator = "recordsKeyGenerator")
     public List<Map<String, Object>> getMonthlyAggregatedData(String vehicleType, String year, String dateFrom, String dateTo) {
         Query query = new Query();
         
@@ -410,6 +575,8 @@ public class VehicleService {
             .collect(Collectors.toList());
     }
     
+    // Cached itself: the getRecordsByType call below is a self-call that does not go through the cache
+    @Cacheable(cacheNames = CacheConfig.MONTHLY_AGGREGATION, keyGenerator = "recordsKeyGenerator")
     public List<Map<String, Object>> getVehiclePerformanceData(String type) {
         List<VehicleRecord> records = getRecordsByType(type);
         Map<String, List<VehicleRecord>> recordsByMatricule = records.stream()
@@ -474,39 +641,53 @@ public class VehicleService {
         log.info("Starting comprehensive anomaly scan for all vehicle records");
         
         List<VehicleRecord> allRecords = getAllRecords();
-        int anomaliesFound = 0;
-        
-        for (VehicleRecord record : allRecords) {
-            if (isAnomalyRecord(record)) {
-                checkForAnomaliesAndNotify(record);
-                anomaliesFound++;
-            }
-        }
+        List<VehicleRecord> anomalies = findAnomalies(allRecords);
+        anomalies.forEach(this::checkForAnomaliesAndNotify);
+        int anomaliesFound = anomalies.size();
         
         log.info("Anomaly scan completed. Found {} anomalies out of {} total records", 
                    anomaliesFound, allRecords.size());
         return anomaliesFound;
     }
 
-    private boolean isAnomalyRecord(VehicleRecord record) {
-        if (record.isCamion()) {
-            double ipe_ser = serService.calculateIPE_SER(record);
-            return ipe_ser > 0.0 && record.getIpeL100TonneKm() > ipe_ser;
+    /**
+     * Truck records above their IPE_SER, in input order. Records are grouped by the SER
+     * equation they are checked against (region, year, type): each equation is looked up
+     * once, the groups run concurrently on the anomaly-scan executor and their records
+     * are checked in memory, so a scan submits one task per group rather than per record.
+     */
+    private List<VehicleRecord> findAnomalies(List<VehicleRecord> records) {
+        Map<List<String>, List<VehicleRecord>> byEquation = records.stream()
+            .filter(VehicleRecord::isCamion)
+            .collect(Collectors.groupingBy(record -> Arrays.asList(record.getRegion(), record.getYear(), record.getType())));
+        List<CompletableFuture<List<VehicleRecord>>> checks = byEquation.values().stream()
+            .map(group -> CompletableFuture.supplyAsync(() -> findAnomaliesInGroup(group), anomalyScanExecutor))
+            .toList();
+
+        Set<VehicleRecord> anomalous = Collections.newSetFromMap(new IdentityHashMap<>());
+        checks.forEach(check -> anomalous.addAll(check.join()));
+        return records.stream().filter(anomalous::contains).toList();
+    }
+
+    private List<VehicleRecord> findAnomaliesInGroup(List<VehicleRecord> group) {
+        VehicleRecord first = group.get(0);
+        Optional<RegressionResult> equation = serService.getSEREquation(first.getRegion(), first.getYear(), first.getType());
+        if (equation.isEmpty()) {
+            return List.of();
         }
-        return false;
+        return group.stream()
+            .filter(record -> {
+                double ipeSer = serService.calculateIPE_SER(record, equation.get());
+                return ipeSer > 0.0 && record.getIpeL100TonneKm() > ipeSer;
+            })
+            .toList();
     }
 
     public long getAnomalyCount() {
-        List<VehicleRecord> allRecords = getAllRecords();
-        return allRecords.stream()
-            .mapToLong(record -> isAnomalyRecord(record) ? 1 : 0)
-            .sum();
+        return findAnomalies(getAllRecords()).size();
     }
 
     public List<VehicleRecord> getAllAnomalousRecords() {
-        List<VehicleRecord> allRecords = getAllRecords();
-        return allRecords.stream()
-            .filter(this::isAnomalyRecord)
-            .collect(Collectors.toList());
+        return findAnomalies(getAllRecords());
     }
 }
@@ -0,0 +1,176 @@
+package com.carburant.backend.utils;
+
+import java.util.UUID;
+
+import org.apache.commons.math3.distribution.FDistribution;
+import org.apache.commons.math3.distribution.TDistribution;
+
+import com.carburant.backend.model.RegressionCoefficients;
+import com.carburant.backend.model.RegressionMoments;
+import com.carburant.backend.model.RegressionResult;
+
+/**
+ * Ordinary least squares for the SER models, solved from sufficient statistics.
+ *
+ * With one predictor (VOITURE: consommation ~ kilométrage) or two (CAMION:
+ * consommation ~ kilométrage + tonnage), the normal equations are a 1x1 or 2x2
+ * system over the centered co-moments, so the fit and its statistics cost O(1)
+ * whatever the number of observations.
+ */
+public final class ClosedFormRegression {
+
+    public static final String CAR = "VOITURE";
+    public static final String TRUCK = "CAMION";
+
+    private ClosedFormRegression() {
+    }
+
+    /**
+     * Fit a model from its sufficient statistics
+     *
+     * @param moments Statistics of (kilométrage, tonnage in thousands, consommation)
+     * @param type VOITURE (kilométrage only) or CAMION (kilométrage and tonnage)
+     * @return Coefficients, R², ANOVA and coefficient statistics; predicted values and residuals are not set
+     * @throws IllegalArgumentException If there are too few observations or the predictors are collinear
+     */
+    public static RegressionResult fit(RegressionMoments moments, String type) {
+        return solve(moments, type, true);
+    }
+
+    /**
+     * Fit a model without the coefficient statistics: coefficients, R², ANOVA sums of
+     * squares and the standard error only, skipping the t and F distributions that
+     * dominate the cost of {@link #fit}
+     *
+     * @throws IllegalArgumentException If there are too few observations or the predictors are collinear
+     */
+    public static RegressionResult estimate(RegressionMoments moments, String type) {
+        return solve(moments, type, false);
+    }
+
+    private static RegressionResult solve(RegressionMoments moments, String type, boolean inference) {
+        int p = TRUCK.equals(type) ? 2 : 1;
+        long n = moments.getN();
+        if (n < p + 2) {
+            throw new IllegalArgumentException(
+                String.format("Not enough data points for regression: %d (at least %d required)", n, p + 2));
+        }
+
+        double c11 = moments.getC11();
+        double c22 = moments.getC22();
+        double c12 = moments.getC12();
+        double b1;
+        double b2 = 0.0;
+        double inv11;
+        double inv22 = 0.0;
+        double inv12 = 0.0;
+        if (p == 1) {
+            if (!(c11 > 0)) {
+                throw new IllegalArgumentException("Singular data: kilometrage does not vary");
+            }
+            inv11 = 1 / c11;
+            b1 = moments.getC1y() * inv11;
+        } else {
+            double det = c11 * c22 - c12 * c12;
+            if (!(det > 1e-12 * c11 * c22)) {
+                throw new IllegalArgumentException("Singular data: kilometrage and tonnage are collinear");
+            }
+            inv11 = c22 / det;
+            inv22 = c11 / det;
+            inv12 = -c12 / det;
+            b1 = inv11 * moments.getC1y() + inv12 * moments.getC2y();
+            b2 = inv12 * moments.getC1y() + inv22 * moments.getC2y();
+        }
+        double m1 = moments.getMeanX1();
+        double m2 = moments.getMeanX2();
+        double b0 = moments.getMeanY() - b1 * m1 - b2 * m2;
+
+        double totalSS = moments.getCyy();
+        double regressionSS = b1 * moments.getC1y() + b2 * moments.getC2y();
+        double errorSS = Math.max(0.0, totalSS - regressionSS);
+        int df = (int) (n - p - 1);
+        double errorMS = errorSS / df;
+        double regressionMS = regressionSS / p;
+        double fStat = regressionMS / errorMS;
+        double rSquared = totalSS > 0 ? regressionSS / totalSS : 0.0;
+        double adjustedRSquared = 1 - (1 - rSquared) * (n - 1) / df;
+        double[] coefficients = p == 1 ? new double[] { b0, b1 } : new double[] { b0, b1, b2 };
+
+        RegressionResult result = RegressionResult.builder()
+            .id(UUID.randomUUID().toString())
+            .type(p == 1 ? CAR : TRUCK)
+            .regressionEquation(equation(p == 1 ? CAR : TRUCK, b0, b1, b2))
+            .coefficients(RegressionCoefficients.builder()
+                .kilometrage(b1)
+                .tonnage(b2)
+                .build())
+            .intercept(b0)
+            .multipleR(Math.sqrt(rSquared))
+            .rSquared(rSquared)
+            .adjustedRSquared(adjustedRSquared)
+            .standardError(Math.sqrt(errorMS))
+            .observations((int) n)
+            .degreesOfFreedom(df)
+            .sumOfSquares(totalSS)
+            .meanSquare(regressionMS)
+            .fStatistic(fStat)
+            .mse(errorMS)
+            .build();
+        if (!inference) {
+            return result;
+        }
+
+        // Var(b) = MSE * (XᵀX)⁻¹; for the intercept, MSE * (1/n + mᵀ C⁻¹ m)
+        double[] variances = p == 1
+            ? new double[] { errorMS * (1.0 / n + m1 * m1 * inv11), errorMS * inv11 }
+            : new double[] {
+                errorMS * (1.0 / n + m1 * m1 * inv11 + 2 * m1 * m2 * inv12 + m2 * m2 * inv22),
+                errorMS * inv11,
+                errorMS * inv22 };
+
+        TDistribution tDist = new TDistribution(df);
+        double tCritical = tDist.inverseCumulativeProbability(0.975);
+        double[] standardErrors = new double[coefficients.length];
+        double[] tStats = new double[coefficients.length];
+        double[] pValues = new double[coefficients.length];
+        double[] lowerConfidence = new double[coefficients.length];
+        double[] upperConfidence = new double[coefficients.length];
+        for (int i = 0; i < coefficients.length; i++) {
+            standardErrors[i] = Math.sqrt(variances[i]);
+            tStats[i] = coefficients[i] / standardErrors[i];
+            pValues[i] = 2 * (1 - tDist.cumulativeProbability(Math.abs(tStats[i])));
+            lowerConfidence[i] = coefficients[i] - tCritical * standardErrors[i];
+            upperConfidence[i] = coefficients[i] + tCritical * standardErrors[i];
+        }
+
+        result.setSignificanceF(1 - new FDistribution(p, df).cumulativeProbability(fStat));
+        result.setStandardErrors(standardErrors);
+        result.setTStats(tStats);
+        result.setPValues(pValues);
+        result.setLowerConfidence(lowerConfidence);
+        result.setUpperConfidence(upperConfidence);
+        return result;
+    }
+
+    /**
+     * Display form of an SER equation
+     */
+    public static String equation(String type, double intercept, double kilometrage, double tonnage) {
+        if (CAR.equals(type)) {
+            return String.format(
+                "Consommation = %.4f * kilométrage %s %.2f",
+                kilometrage,
+                intercept >= 0 ? "+" : "-",
+                Math.abs(intercept)
+            );
+        }
+        return String.format(
+            "Consommation = %.4f * kilométrage %s %.4f * tonnage %s %.2f",
+            kilometrage,
+            tonnage >= 0 ? "+" : "-",
+            Math.abs(tonnage),
+            intercept >= 0 ? "+" : "-",
+            Math.abs(intercept)
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package com.carburant.backend.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * SHA-256 content hashes used to recognise identical uploads
+ */
+public final class ContentHashUtils {
+
+    private ContentHashUtils() {
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Wrap a stream so that everything read through it is hashed
+     */
+    public static DigestInputStream hashing(InputStream inputStream) {
+        return new DigestInputStream(inputStream, newSha256());
+    }
+
+    /**
+     * Hex-encoded hash of everything read so far through a hashing stream
+     */
+    public static String hex(DigestInputStream inputStream) {
+        return HexFormat.of().formatHex(inputStream.getMessageDigest().digest());
+    }
+
+    /**
+     * Hash the full content of a source, streaming it once
+     */
+    public static String sha256(InputStreamSource source) throws IOException {
+        try (DigestInputStream inputStream = hashing(source.getInputStream())) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+            return hex(inputStream);
+        }
+    }
+}
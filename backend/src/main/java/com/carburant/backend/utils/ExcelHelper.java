@@ -2,21 +2,28 @@ package com.carburant.backend.utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Helper class for Excel file operations
  */
+@Slf4j
 @Component
 public class ExcelHelper {
 
@@ -35,13 +42,61 @@ public class ExcelHelper {
     }
     
     /**
-     * Get the names of all sheets in an Excel file
+     * Get the names of all sheets in an Excel file, reading only the workbook
+     * directory when the format allows it
      * 
      * @param inputStream The input stream of the Excel file
      * @return A list of sheet names
      * @throws IOException If the file cannot be read
      */
     public List<String> getSheetNames(InputStream inputStream) throws IOException {
+        InputStream workbookStream = FileMagic.prepareToCheckMagic(inputStream);
+        List<String> sheetNames = SheetNameReader.read(workbookStream);
+        return sheetNames != null ? sheetNames : loadSheetNames(workbookStream);
+    }
+    
+    /**
+     * Get the names of all sheets in an Excel file, falling back to a full
+     * workbook load if the workbook directory cannot be read on its own
+     * 
+     * @param source A re-readable source of the Excel file
+     * @return A list of sheet names
+     * @throws IOException If the file cannot be read
+     */
+    public List<String> getSheetNames(InputStreamSource source) throws IOException {
+        try (InputStream inputStream = source.getInputStream()) {
+            return getSheetNames(inputStream);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Fast sheet name lookup failed ({}), loading the workbook", e.getMessage());
+        }
+        try (InputStream inputStream = source.getInputStream()) {
+            return loadSheetNames(inputStream);
+        }
+    }
+    
+    /**
+     * Get the names of all sheets in an Excel file on disk, using random access
+     * to the workbook directory
+     * 
+     * @param path The Excel file
+     * @return A list of sheet names
+     * @throws IOException If the file cannot be read
+     */
+    public List<String> getSheetNames(Path path) throws IOException {
+        try {
+            List<String> sheetNames = SheetNameReader.read(path);
+            if (sheetNames != null) {
+                return sheetNames;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Fast sheet name lookup failed for {} ({}), loading the workbook", path, e.getMessage());
+        }
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return loadSheetNames(inputStream);
+        }
+    }
+    
+    private List<String> loadSheetNames(InputStream inputStream) throws IOException {
         List<String> sheetNames = new ArrayList<>();
         
         try (Workbook workbook = WorkbookFactory.create(inputStream)) {
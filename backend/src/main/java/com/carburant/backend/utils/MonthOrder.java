@@ -0,0 +1,59 @@
+package com.carburant.backend.utils;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Chronological order of the month labels read from the sheets ("Janvier", "FÉVRIER 2024",
+ * "March", "03", ...). Labels are matched without case or accents.
+ */
+public final class MonthOrder {
+
+    private static final List<String> FRENCH = List.of(
+        "janvier", "fevrier", "mars", "avril", "mai", "juin",
+        "juillet", "aout", "septembre", "octobre", "novembre", "decembre");
+    private static final List<String> ENGLISH = List.of(
+        "january", "february", "march", "april", "may", "june",
+        "july", "august", "september", "october", "november", "december");
+
+    private MonthOrder() {
+    }
+
+    /**
+     * Month number of a label
+     *
+     * @return 1 to 12, or 0 if the label is not a month
+     */
+    public static int monthNumber(String mois) {
+        if (mois == null) {
+            return 0;
+        }
+        String label = Normalizer.normalize(mois.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "");
+        // No month name contains another one, so the first match is the month
+        for (int i = 0; i < 12; i++) {
+            if (label.contains(FRENCH.get(i)) || label.contains(ENGLISH.get(i))) {
+                return i + 1;
+            }
+        }
+        if (label.matches("\\d{1,2}")) {
+            int number = Integer.parseInt(label);
+            return number >= 1 && number <= 12 ? number : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Sortable period key, year * 100 + month
+     *
+     * @return The key, or 0 if the year or the month cannot be read
+     */
+    public static int period(String year, String mois) {
+        int month = monthNumber(mois);
+        if (month == 0 || year == null || !year.trim().matches("\\d{4}")) {
+            return 0;
+        }
+        return Integer.parseInt(year.trim()) * 100 + month;
+    }
+}
@@ -0,0 +1,163 @@
+package com.carburant.backend.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+
+/**
+ * Reads sheet names without loading the workbook.
+ *
+ * For .xlsx only the workbook part (xl/workbook.xml) of the package is parsed, with StAX;
+ * for .xls only the BoundSheet records of the workbook globals are read, stopping at the
+ * first EOF record. Cells, styles and shared strings are never touched.
+ * An .xls stream is copied to a temporary file first: the OLE2 container is read
+ * through random access, and reading it from a stream would buffer it in memory.
+ */
+public final class SheetNameReader {
+
+    private static final String WORKBOOK_PART = "xl/workbook.xml";
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
+    private SheetNameReader() {
+    }
+
+    /**
+     * Read sheet names from a workbook stream
+     *
+     * @param inputStream A stream returned by {@link FileMagic#prepareToCheckMagic(InputStream)}
+     * @return The sheet names in workbook order, or null if the format has no fast path
+     *         (the stream is then left at its start)
+     */
+    public static List<String> read(InputStream inputStream) throws IOException {
+        FileMagic magic = FileMagic.valueOf(inputStream);
+        if (magic == FileMagic.OOXML) {
+            // Commons Compress also accepts stored entries with data descriptors, which ZipInputStream rejects
+            return readOoxml(new ZipArchiveInputStream(inputStream, StandardCharsets.UTF_8.name(), true, true));
+        }
+        if (magic == FileMagic.OLE2) {
+            Path spillFile = Files.createTempFile("energix-sheets-", ".xls");
+            try {
+                Files.copy(inputStream, spillFile, StandardCopyOption.REPLACE_EXISTING);
+                try (POIFSFileSystem fileSystem = new POIFSFileSystem(spillFile.toFile(), true)) {
+                    return readBiff(fileSystem);
+                }
+            } finally {
+                Files.deleteIfExists(spillFile);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read sheet names from a workbook file, using random access to the zip directory or OLE2 container
+     *
+     * @return The sheet names in workbook order, or null if the format has no fast path
+     */
+    public static List<String> read(Path path) throws IOException {
+        FileMagic magic = FileMagic.valueOf(path.toFile());
+        if (magic == FileMagic.OOXML) {
+            try (ZipFile zipFile = new ZipFile(path.toFile())) {
+                ZipEntry entry = zipFile.getEntry(WORKBOOK_PART);
+                if (entry == null) {
+                    throw new IOException("No " + WORKBOOK_PART + " in " + path.getFileName());
+                }
+                try (InputStream workbookPart = zipFile.getInputStream(entry)) {
+                    return parseWorkbookPart(workbookPart);
+                }
+            }
+        }
+        if (magic == FileMagic.OLE2) {
+            try (POIFSFileSystem fileSystem = new POIFSFileSystem(path.toFile(), true)) {
+                return readBiff(fileSystem);
+            }
+        }
+        return null;
+    }
+
+    private static List<String> readOoxml(ZipArchiveInputStream zip) throws IOException {
+        ZipArchiveEntry entry;
+        while ((entry = zip.getNextZipEntry()) != null) {
+            if (WORKBOOK_PART.equals(entry.getName())) {
+                return parseWorkbookPart(zip);
+            }
+        }
+        throw new IOException("No " + WORKBOOK_PART + " in the package");
+    }
+
+    private static List<String> parseWorkbookPart(InputStream workbookPart) throws IOException {
+        List<String> sheetNames = new ArrayList<>();
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(workbookPart);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                        sheetNames.add(reader.getAttributeValue(null, "name"));
+                    } else if (event == XMLStreamConstants.END_ELEMENT && "sheets".equals(reader.getLocalName())) {
+                        break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid workbook part: " + e.getMessage(), e);
+        }
+        return sheetNames;
+    }
+
+    private static List<String> readBiff(POIFSFileSystem fileSystem) throws IOException {
+        List<String> sheetNames = new ArrayList<>();
+        HSSFRequest request = new HSSFRequest();
+        AbortableHSSFListener listener = new AbortableHSSFListener() {
+            @Override
+            public short abortableProcessRecord(Record record) {
+                if (record instanceof BoundSheetRecord boundSheet) {
+                    sheetNames.add(boundSheet.getSheetname());
+                    return 0;
+                }
+                // The first EOF closes the workbook globals, which hold every BoundSheet record
+                return 1;
+            }
+        };
+        request.addListener(listener, BoundSheetRecord.sid);
+        request.addListener(listener, EOFRecord.sid);
+        try {
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fileSystem);
+        } catch (HSSFUserException e) {
+            throw new IOException("Could not read sheet names: " + e.getMessage(), e);
+        }
+        return sheetNames;
+    }
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -0,0 +1,52 @@
+package com.carburant.backend.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import com.carburant.backend.model.VehicleRecord;
+
+class VehicleRecordsCacheTest {
+
+    private final VehicleRecordsCache cache = new VehicleRecordsCache(new ConcurrentMapCache("vehicleRecords"));
+
+    @Test
+    void mutatingThePutRecordDoesNotChangeTheCache() {
+        VehicleRecord record = VehicleRecord.builder().matricule("123TU4567").build();
+        cache.put("key", new ArrayList<>(List.of(record)));
+
+        record.setPredictedIpe(12.5);
+
+        assertNull(cached("key").get(0).getPredictedIpe());
+    }
+
+    @Test
+    void mutatingAReturnedRecordDoesNotChangeTheCache() {
+        cache.put("key", List.of(VehicleRecord.builder().matricule("123TU4567").build()));
+
+        cached("key").get(0).setPredictedIpe(12.5);
+
+        assertNull(cached("key").get(0).getPredictedIpe());
+    }
+
+    @Test
+    void returnedListsAreUnmodifiable() {
+        cache.put("key", List.of(VehicleRecord.builder().matricule("123TU4567").build()));
+
+        List<VehicleRecord> records = cached("key");
+
+        assertEquals(1, records.size());
+        assertThrows(UnsupportedOperationException.class, () -> records.add(new VehicleRecord()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<VehicleRecord> cached(String key) {
+        return (List<VehicleRecord>) cache.get(key).get();
+    }
+}
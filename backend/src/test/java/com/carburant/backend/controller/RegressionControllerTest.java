@@ -0,0 +1,159 @@
+package com.carburant.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.carburant.backend.model.RegressionResult;
+import com.carburant.backend.model.RegressionTrajectory;
+import com.carburant.backend.model.VehicleRecord;
+import com.carburant.backend.repository.RegressionRepository;
+import com.carburant.backend.service.BootstrapRegressionService;
+import com.carburant.backend.service.DataVersionService;
+import com.carburant.backend.service.ModelSelectionService;
+import com.carburant.backend.service.RegressionBatchService;
+import com.carburant.backend.service.RegressionService;
+import com.carburant.backend.service.RegressionStatisticsService;
+import com.carburant.backend.service.RollingRegressionService;
+import com.carburant.backend.service.SERService;
+import com.carburant.backend.service.ValidationService;
+import com.carburant.backend.service.VehicleService;
+import com.carburant.backend.service.RollingRegressionService.WindowMode;
+
+@ExtendWith(MockitoExtension.class)
+class RegressionControllerTest {
+
+    @Mock
+    private RollingRegressionService rollingRegressionService;
+
+    @InjectMocks
+    private RegressionController regressionController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(regressionController).build();
+    }
+
+    @Test
+    void trajectoryDefaultsToRollingWindows() throws Exception {
+        when(rollingRegressionService.trajectory(eq("camions"), isNull(), eq(WindowMode.ROLLING), eq(12), isNull(), isNull()))
+            .thenReturn(new RegressionTrajectory());
+
+        mockMvc.perform(get("/regression/trajectory").param("vehicleType", "camions"))
+            .andExpect(status().isOk());
+
+        verify(rollingRegressionService).trajectory("camions", null, WindowMode.ROLLING, 12, null, null);
+    }
+
+    @Test
+    void trajectoryAcceptsDocumentedModes() throws Exception {
+        when(rollingRegressionService.trajectory(any(), any(), any(), any(Integer.class), any(), any()))
+            .thenReturn(new RegressionTrajectory());
+
+        mockMvc.perform(get("/regression/trajectory").param("vehicleType", "camions").param("mode", "expanding"))
+            .andExpect(status().isOk());
+
+        verify(rollingRegressionService).trajectory("camions", null, WindowMode.EXPANDING, 12, null, null);
+    }
+
+    @Test
+    void trajectoryRejectsUnknownMode() throws Exception {
+        mockMvc.perform(get("/regression/trajectory").param("vehicleType", "camions").param("mode", "sliding"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(rollingRegressionService);
+    }
+
+    @Test
+    void analyzingANonCanonicalTypeTwiceStoresOneResult() throws Exception {
+        // regression_results held in memory: findOne matches the query fields exactly
+        Map<String, RegressionResult> stored = new LinkedHashMap<>();
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findOne(any(Query.class), eq(RegressionResult.class))).thenAnswer(invocation -> {
+            Document criteria = invocation.<Query>getArgument(0).getQueryObject();
+            return stored.values().stream()
+                .filter(result -> Objects.equals(criteria.get("type"), result.getType())
+                    && Objects.equals(criteria.get("vehicleType"), result.getVehicleType())
+                    && Objects.equals(criteria.get("year"), result.getYear())
+                    && Objects.equals(criteria.get("region"), result.getRegion()))
+                .findFirst()
+                .orElse(null);
+        });
+        RegressionRepository regressionRepository = mock(RegressionRepository.class);
+        when(regressionRepository.save(any(RegressionResult.class))).thenAnswer(invocation -> {
+            RegressionResult result = invocation.getArgument(0);
+            stored.put(result.getId(), result);
+            return result;
+        });
+        RegressionService regressionService = new RegressionService(regressionRepository, new ValidationService(),
+            mock(DataVersionService.class), mongoTemplate);
+        VehicleService vehicleService = mock(VehicleService.class);
+        when(vehicleService.getRecordsByTypeAndYear("camions", "2024")).thenReturn(truckRecords());
+        RegressionController controller = new RegressionController(regressionService,
+            mock(RegressionStatisticsService.class), mock(RegressionBatchService.class), rollingRegressionService,
+            mock(BootstrapRegressionService.class), mock(ModelSelectionService.class), mock(SERService.class),
+            vehicleService, mock(DataVersionService.class));
+        MockMvc analyzeMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        for (int call = 0; call < 2; call++) {
+            analyzeMvc.perform(post("/regression/analyze").param("vehicleType", "camions").param("year", "2024"))
+                .andExpect(status().isOk());
+        }
+
+        assertEquals(1, stored.size());
+        RegressionResult result = stored.values().iterator().next();
+        assertEquals("CAMION", result.getType());
+        assertEquals("camions", result.getVehicleType());
+        verify(vehicleService).getRecordsByTypeAndYear("camions", "2024");
+    }
+
+    private static List<VehicleRecord> truckRecords() {
+        String[] months = { "Janvier", "Février", "Mars", "Avril", "Mai", "Juin",
+            "Juillet", "Août", "Septembre", "Octobre", "Novembre", "Décembre" };
+        List<VehicleRecord> records = new ArrayList<>();
+        for (int i = 0; i < months.length; i++) {
+            double kilometrage = 4000 + 350 * i + (i % 3) * 420;
+            double tonnage = 120 + 15 * ((i * 7) % 12);
+            records.add(VehicleRecord.builder()
+                .type("camions")
+                .year("2024")
+                .mois(months[i])
+                .region("Tunis")
+                .matricule("123TU4567")
+                .kilometrage(kilometrage)
+                .produitsTonnes(tonnage)
+                .consommationL(30 + 0.3 * kilometrage + 0.8 * tonnage + (i % 2) * 12)
+                .ipeL100km(32)
+                .build());
+        }
+        return records;
+    }
+}
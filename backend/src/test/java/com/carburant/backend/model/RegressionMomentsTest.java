@@ -0,0 +1,108 @@
+package com.carburant.backend.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RegressionMomentsTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void addMatchesTwoPassMoments() {
+        double[][] data = data(200, 1);
+        assertMoments(twoPass(data, 0, data.length), build(data, 0, data.length));
+    }
+
+    @Test
+    void removeMatchesMomentsWithoutTheObservations() {
+        double[][] data = data(120, 2);
+        RegressionMoments moments = build(data, 0, data.length);
+        for (int i = 0; i < 40; i++) {
+            moments.remove(data[i][0], data[i][1], data[i][2]);
+        }
+        assertMoments(twoPass(data, 40, data.length), moments);
+    }
+
+    @Test
+    void removingEveryObservationClears() {
+        double[][] data = data(5, 3);
+        RegressionMoments moments = build(data, 0, data.length);
+        for (double[] row : data) {
+            moments.remove(row[0], row[1], row[2]);
+        }
+        assertEquals(0, moments.getN());
+        assertEquals(0.0, moments.getC11());
+        assertEquals(0.0, moments.getCyy());
+    }
+
+    @Test
+    void mergeMatchesMomentsOfTheUnion() {
+        double[][] data = data(150, 4);
+        RegressionMoments merged = build(data, 0, 70);
+        merged.merge(build(data, 70, data.length));
+        assertMoments(twoPass(data, 0, data.length), merged);
+
+        RegressionMoments empty = new RegressionMoments();
+        empty.merge(build(data, 0, data.length));
+        assertMoments(twoPass(data, 0, data.length), empty);
+    }
+
+    private static RegressionMoments build(double[][] data, int from, int to) {
+        RegressionMoments moments = new RegressionMoments();
+        for (int i = from; i < to; i++) {
+            moments.add(data[i][0], data[i][1], data[i][2]);
+        }
+        return moments;
+    }
+
+    private static double[] twoPass(double[][] data, int from, int to) {
+        int n = to - from;
+        double m1 = 0;
+        double m2 = 0;
+        double my = 0;
+        for (int i = from; i < to; i++) {
+            m1 += data[i][0] / n;
+            m2 += data[i][1] / n;
+            my += data[i][2] / n;
+        }
+        double[] c = new double[] { n, m1, m2, my, 0, 0, 0, 0, 0, 0 };
+        for (int i = from; i < to; i++) {
+            double d1 = data[i][0] - m1;
+            double d2 = data[i][1] - m2;
+            double dy = data[i][2] - my;
+            c[4] += d1 * d1;
+            c[5] += d1 * d2;
+            c[6] += d2 * d2;
+            c[7] += d1 * dy;
+            c[8] += d2 * dy;
+            c[9] += dy * dy;
+        }
+        return c;
+    }
+
+    private static void assertMoments(double[] expected, RegressionMoments actual) {
+        double[] values = { actual.getN(), actual.getMeanX1(), actual.getMeanX2(), actual.getMeanY(), actual.getC11(),
+            actual.getC12(), actual.getC22(), actual.getC1y(), actual.getC2y(), actual.getCyy() };
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(expected[i], values[i], TOLERANCE * Math.max(1, Math.abs(expected[i])), "moment " + i);
+        }
+    }
+
+    /**
+     * Monthly-like points: kilometrage around 50 000, tonnage in thousands, consumption
+     * linear in both with noise
+     */
+    private static double[][] data(int n, long seed) {
+        Random random = new Random(seed);
+        double[][] data = new double[n][3];
+        for (int i = 0; i < n; i++) {
+            double km = 50000 + 15000 * random.nextGaussian();
+            double tonnage = 2.5 + 0.8 * random.nextGaussian() + km / 100000;
+            data[i] = new double[] { km, tonnage, 1200 + 0.31 * km + 450 * tonnage + 300 * random.nextGaussian() };
+        }
+        return data;
+    }
+}
@@ -0,0 +1,94 @@
+package com.carburant.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.carburant.backend.model.PredictionRequest;
+import com.carburant.backend.model.PredictionResult;
+import com.carburant.backend.model.RegressionCoefficients;
+import com.carburant.backend.model.RegressionResult;
+
+@ExtendWith(MockitoExtension.class)
+class SERServiceTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private RegressionService regressionService;
+
+    private SERService serService;
+
+    @BeforeEach
+    void setUp() {
+        serService = new SERService(mongoTemplate, regressionService, 100);
+    }
+
+    @Test
+    void truckPredictionScalesTonnageToThousandsAndIpePerTon() {
+        stored(truckEquation("CAMION", "Camions"));
+
+        PredictionResult result = serService.predict(request(new double[] {10000, 20000}, new double[] {500, 2000}))
+            .orElseThrow();
+
+        // consommation = 100 + 0.3 * km + 40 * tonnage / 1000
+        assertEquals("CAMION", result.getModel());
+        assertArrayEquals(new double[] {3120, 6180}, result.getConsommation(), TOLERANCE);
+        assertArrayEquals(new double[] {31.2, 30.9}, result.getIpeL100km(), TOLERANCE);
+        assertArrayEquals(new double[] {31.2 / 500, 30.9 / 2000}, result.getIpeL100TonneKm(), TOLERANCE);
+    }
+
+    @Test
+    void equationWithoutTypeFallsBackToItsVehicleType() {
+        stored(truckEquation(null, "Camions"));
+
+        PredictionResult result = serService.predict(request(new double[] {10000}, new double[] {500})).orElseThrow();
+
+        assertEquals("CAMION", result.getModel());
+        assertArrayEquals(new double[] {3120}, result.getConsommation(), TOLERANCE);
+    }
+
+    @Test
+    void truckEquationWithoutTypeStillRequiresTonnage() {
+        stored(truckEquation(null, "Camions"));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> serService.predict(request(new double[] {10000}, null)));
+    }
+
+    private void stored(RegressionResult equation) {
+        when(regressionService.getRegressionResultById("equation")).thenReturn(Optional.of(equation));
+    }
+
+    private static RegressionResult truckEquation(String type, String vehicleType) {
+        return RegressionResult.builder()
+            .id("equation")
+            .type(type)
+            .vehicleType(vehicleType)
+            .year("2024")
+            .intercept(100)
+            .coefficients(RegressionCoefficients.builder().kilometrage(0.3).tonnage(40).build())
+            .build();
+    }
+
+    private static PredictionRequest request(double[] kilometrage, double[] tonnage) {
+        PredictionRequest request = new PredictionRequest();
+        request.setEquationId("equation");
+        request.setKilometrage(kilometrage);
+        request.setTonnage(tonnage);
+        return request;
+    }
+}
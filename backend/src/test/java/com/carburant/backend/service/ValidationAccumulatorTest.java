@@ -0,0 +1,148 @@
+package com.carburant.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+
+import com.carburant.backend.model.MonthlyData;
+
+class ValidationAccumulatorTest {
+
+    @Test
+    void warningsMatchTheTwoPassValidation() {
+        Random random = new Random(7);
+        List<MonthlyData> data = new ArrayList<>();
+        for (int i = 0; i < 36; i++) {
+            double km = 20000 + random.nextDouble() * 5000;
+            double consumption = km * 0.35 + random.nextDouble() * 400;
+            if (i == 5) {
+                consumption *= 3;
+            }
+            if (i == 20) {
+                km *= 4;
+            }
+            if (i == 30) {
+                km = -10;
+            }
+            double tonnage = km * 0.05 + random.nextDouble() * 50;
+            data.add(month(i, km, tonnage, consumption));
+        }
+
+        List<String> expected = twoPassWarnings(data, true);
+
+        assertTrue(expected.stream().anyMatch(warning -> warning.contains("outside expected range")));
+        assertTrue(expected.stream().anyMatch(warning -> warning.contains("Possible outlier")));
+        assertTrue(expected.stream().anyMatch(warning -> warning.contains("High correlation")));
+        assertEquals(expected, accumulate(data, true));
+    }
+
+    @Test
+    void onlyTheMostExtremeOutliersAreListedBeyondTheLimit() {
+        List<MonthlyData> data = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            double consumption = i < 100 ? 10000 + i : 100 + i % 10;
+            data.add(month(i, 1000 + i % 10, 0, consumption));
+        }
+
+        List<String> warnings = accumulate(data, false);
+
+        // The 64 highest of the 100 outliers, in the order of the points, then the truncation warning
+        List<String> expected = new ArrayList<>(twoPassWarnings(data, false)
+            .subList(100 - ValidationAccumulator.EXTREMES, 100));
+        expected.add(String.format("Warning: More than %d possible outliers on one side; only the most extreme are listed",
+            ValidationAccumulator.EXTREMES));
+        assertEquals(expected, warnings);
+    }
+
+    @Test
+    void rangeWarningsBeyondTheLimitAreCounted() {
+        List<MonthlyData> data = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            data.add(month(i, 1000 + i % 10, 0, 60000 + i));
+        }
+
+        List<String> warnings = accumulate(data, false);
+
+        List<String> expected = new ArrayList<>(twoPassWarnings(data, false)
+            .subList(0, ValidationAccumulator.EXTREMES));
+        expected.add("Warning: ...and 36 more values outside expected range");
+        assertEquals(expected, warnings);
+    }
+
+    private static MonthlyData month(int index, double km, double tonnage, double consumption) {
+        return MonthlyData.builder()
+            .month(String.valueOf(index + 1))
+            .kilometrage(km)
+            .tonnage(tonnage)
+            .consommation(consumption)
+            .build();
+    }
+
+    private static List<String> accumulate(List<MonthlyData> data, boolean checkCorrelation) {
+        ValidationAccumulator accumulator = new ValidationAccumulator(checkCorrelation);
+        data.forEach(accumulator::add);
+        return accumulator.warnings();
+    }
+
+    /**
+     * The validation as it was before the accumulator: DescriptiveStatistics z-scores
+     * and PearsonsCorrelation over the whole list
+     */
+    private static List<String> twoPassWarnings(List<MonthlyData> data, boolean checkCorrelation) {
+        List<String> warnings = new ArrayList<>();
+        for (MonthlyData month : data) {
+            if (month.getKilometrage() < ValidationAccumulator.MIN_KILOMETRAGE
+                    || month.getKilometrage() > ValidationAccumulator.MAX_KILOMETRAGE) {
+                warnings.add(String.format("Warning: Kilometrage value %.2f for month %s is outside expected range",
+                    month.getKilometrage(), month.getMonth()));
+            }
+            if (month.getConsommation() < ValidationAccumulator.MIN_CONSOMMATION
+                    || month.getConsommation() > ValidationAccumulator.MAX_CONSOMMATION) {
+                warnings.add(String.format("Warning: Consumption value %.2f for month %s is outside expected range",
+                    month.getConsommation(), month.getMonth()));
+            }
+            if (month.getTonnage() != 0 && (month.getTonnage() < ValidationAccumulator.MIN_TONNAGE
+                    || month.getTonnage() > ValidationAccumulator.MAX_TONNAGE)) {
+                warnings.add(String.format("Warning: Tonnage value %.2f for month %s is outside expected range",
+                    month.getTonnage(), month.getMonth()));
+            }
+        }
+
+        DescriptiveStatistics consommation = new DescriptiveStatistics();
+        DescriptiveStatistics kilometrage = new DescriptiveStatistics();
+        data.forEach(month -> {
+            consommation.addValue(month.getConsommation());
+            kilometrage.addValue(month.getKilometrage());
+        });
+        for (MonthlyData month : data) {
+            double consZScore = (month.getConsommation() - consommation.getMean()) / consommation.getStandardDeviation();
+            double kmZScore = (month.getKilometrage() - kilometrage.getMean()) / kilometrage.getStandardDeviation();
+            if (Math.abs(consZScore) > ValidationAccumulator.OUTLIER_THRESHOLD) {
+                warnings.add(String.format("Warning: Possible outlier detected - Consumption value %.2f for month %s (z-score: %.2f)",
+                    month.getConsommation(), month.getMonth(), consZScore));
+            }
+            if (Math.abs(kmZScore) > ValidationAccumulator.OUTLIER_THRESHOLD) {
+                warnings.add(String.format("Warning: Possible outlier detected - Kilometrage value %.2f for month %s (z-score: %.2f)",
+                    month.getKilometrage(), month.getMonth(), kmZScore));
+            }
+        }
+
+        if (checkCorrelation) {
+            double correlation = new PearsonsCorrelation().correlation(
+                data.stream().mapToDouble(MonthlyData::getKilometrage).toArray(),
+                data.stream().mapToDouble(MonthlyData::getTonnage).toArray());
+            if (Math.abs(correlation) > ValidationAccumulator.MULTICOLLINEARITY_THRESHOLD) {
+                warnings.add(String.format("Warning: High correlation (%.2f) detected between kilometrage and tonnage. " +
+                    "This may affect the reliability of the regression results.", correlation));
+            }
+        }
+        return warnings;
+    }
+}
@@ -0,0 +1,123 @@
+package com.carburant.backend.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.junit.jupiter.api.Test;
+
+import com.carburant.backend.model.RegressionMoments;
+import com.carburant.backend.model.RegressionResult;
+
+class ClosedFormRegressionTest {
+
+    private static final double TOLERANCE = 1e-8;
+
+    @Test
+    void truckFitMatchesOls() {
+        double[][] data = data(36, 1);
+        double[] y = new double[data.length];
+        double[][] x = new double[data.length][];
+        RegressionMoments moments = new RegressionMoments();
+        for (int i = 0; i < data.length; i++) {
+            x[i] = new double[] { data[i][0], data[i][1] };
+            y[i] = data[i][2];
+            moments.add(data[i][0], data[i][1], data[i][2]);
+        }
+        OLSMultipleLinearRegression ols = new OLSMultipleLinearRegression();
+        ols.newSampleData(y, x);
+
+        RegressionResult result = ClosedFormRegression.fit(moments, ClosedFormRegression.TRUCK);
+
+        double[] beta = ols.estimateRegressionParameters();
+        assertClose(beta[0], result.getIntercept());
+        assertClose(beta[1], result.getCoefficients().getKilometrage());
+        assertClose(beta[2], result.getCoefficients().getTonnage());
+        assertClose(ols.calculateRSquared(), result.getRSquared());
+        assertClose(ols.calculateAdjustedRSquared(), result.getAdjustedRSquared());
+        assertClose(ols.calculateResidualSumOfSquares() / (data.length - 3), result.getMse());
+        double[] standardErrors = ols.estimateRegressionParametersStandardErrors();
+        for (int i = 0; i < standardErrors.length; i++) {
+            assertClose(standardErrors[i], result.getStandardErrors()[i]);
+        }
+    }
+
+    @Test
+    void carFitMatchesOls() {
+        double[][] data = data(12, 2);
+        double[] y = new double[data.length];
+        double[][] x = new double[data.length][];
+        RegressionMoments moments = new RegressionMoments();
+        for (int i = 0; i < data.length; i++) {
+            x[i] = new double[] { data[i][0] };
+            y[i] = data[i][2];
+            moments.add(data[i][0], 0.0, data[i][2]);
+        }
+        OLSMultipleLinearRegression ols = new OLSMultipleLinearRegression();
+        ols.newSampleData(y, x);
+
+        RegressionResult result = ClosedFormRegression.fit(moments, ClosedFormRegression.CAR);
+
+        double[] beta = ols.estimateRegressionParameters();
+        assertClose(beta[0], result.getIntercept());
+        assertClose(beta[1], result.getCoefficients().getKilometrage());
+        assertClose(ols.calculateRSquared(), result.getRSquared());
+        double[] standardErrors = ols.estimateRegressionParametersStandardErrors();
+        for (int i = 0; i < standardErrors.length; i++) {
+            assertClose(standardErrors[i], result.getStandardErrors()[i]);
+        }
+    }
+
+    @Test
+    void fitAfterRemoveMatchesRefit() {
+        double[][] data = data(24, 3);
+        RegressionMoments sliding = new RegressionMoments();
+        for (double[] row : data) {
+            sliding.add(row[0], row[1], row[2]);
+        }
+        RegressionMoments refit = new RegressionMoments();
+        for (int i = 0; i < data.length; i++) {
+            if (i < 6) {
+                sliding.remove(data[i][0], data[i][1], data[i][2]);
+            } else {
+                refit.add(data[i][0], data[i][1], data[i][2]);
+            }
+        }
+
+        RegressionResult expected = ClosedFormRegression.fit(refit, ClosedFormRegression.TRUCK);
+        RegressionResult actual = ClosedFormRegression.fit(sliding, ClosedFormRegression.TRUCK);
+
+        assertClose(expected.getIntercept(), actual.getIntercept());
+        assertClose(expected.getCoefficients().getKilometrage(), actual.getCoefficients().getKilometrage());
+        assertClose(expected.getCoefficients().getTonnage(), actual.getCoefficients().getTonnage());
+        assertClose(expected.getRSquared(), actual.getRSquared());
+    }
+
+    @Test
+    void rejectsTooFewPointsAndCollinearPredictors() {
+        RegressionMoments moments = new RegressionMoments();
+        moments.add(1000, 1, 100);
+        moments.add(2000, 2, 210);
+        moments.add(3000, 3, 290);
+        assertThrows(IllegalArgumentException.class, () -> ClosedFormRegression.fit(moments, ClosedFormRegression.TRUCK));
+        moments.add(4000, 4, 405);
+        assertThrows(IllegalArgumentException.class, () -> ClosedFormRegression.fit(moments, ClosedFormRegression.TRUCK));
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+    }
+
+    private static double[][] data(int n, long seed) {
+        Random random = new Random(seed);
+        double[][] data = new double[n][3];
+        for (int i = 0; i < n; i++) {
+            double km = 50000 + 15000 * random.nextGaussian();
+            double tonnage = 2.5 + 0.8 * random.nextGaussian() + km / 100000;
+            data[i] = new double[] { km, tonnage, 1200 + 0.31 * km + 450 * tonnage + 300 * random.nextGaussian() };
+        }
+        return data;
+    }
+}